@@ -0,0 +1,328 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.*;
+
+// Solves a position exactly: whether the player to move wins, draws or loses if both players play perfectly
+// Only practical with few empty positions left, so Minimax uses it once the number of empty positions is small enough
+//
+// The search is a negamax alpha-beta search on the results LOSS, DRAW and WIN, on its own bitboards:
+// one bitset per colour with position (row * size + col) in bit (position & 63) of word (position >>> 6)
+// A move sets one bit and undoing it clears it again, and a win is found by flood-filling the group of the new piece
+// with whole-word shifts, so nothing is allocated during the search
+//
+// Draws are detected early: a player who could not connect two opposite edges even with every empty position
+// can no longer win, and if neither player can, the position is a draw whatever is played
+// Solved positions are kept in a transposition table of their own, keyed by their Zobrist hash with the player to move
+public class EndgameSolver {
+    // The results of a position for the player to move
+    public static final int LOSS = -1, DRAW = 0, WIN = 1;
+
+    // The memory used by the solved-position table unless another budget is given
+    public static final long DEFAULT_TABLE_BYTES = 4 << 20;
+
+    private TranspositionTable table;
+
+    // The grid being solved, and the masks of its positions (all of them, each edge, and all but the first or last column)
+    private int size;
+    private int words;
+    private long[] all;
+    private long[] top, bottom, left, right;
+    private long[] notFirstCol, notLastCol;
+    private Zobrist zobrist;
+
+    // The pieces of both colours and the hash of the position, updated by every move
+    private long[] white, black;
+    private long hash;
+
+    // The empty positions of each ply, so that a node can make and undo moves while looping over its own list
+    private int[][] empties;
+
+    // Scratch bitsets for the flood fills
+    private long[] allowed, reach, next, shifted;
+
+    private long nodes;
+    private int bestMove;
+
+    public EndgameSolver() {
+        this(DEFAULT_TABLE_BYTES);
+    }
+
+    // tableBytes is the memory budget of the solved-position table
+    public EndgameSolver(long tableBytes) {
+        if (tableBytes <= 0) throw new IllegalArgumentException("tableBytes must be positive");
+        table = new TranspositionTable(tableBytes);
+    }
+
+    // Returns the number of positions visited by the last call of solve()
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    // Returns the position (row * size + col) of a best move found by the last call of solve(),
+    // i.e. one which keeps the result solve() returned, or -1 if the game was already over
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Returns the result of the game for its current player (LOSS, DRAW or WIN) with perfect play by both players
+    // The time taken grows quickly with the number of empty positions, so it is only meant for the last few moves
+    public int solve(Game game) {
+        Grid grid = game instanceof SearchGame ? ((SearchGame) game).getGridView() : game.getGrid();
+        if (grid.getSize() != size)
+            init(grid.getSize());
+        nodes = 0;
+        bestMove = -1;
+        if (game.isOver())
+            return game.winner() == PieceColour.NONE ? DRAW : LOSS;
+
+        // Loads the position into the bitboards
+        Arrays.fill(white, 0);
+        Arrays.fill(black, 0);
+        PieceColour toMove = game.currentPlayer();
+        hash = toMove == PieceColour.BLACK ? zobrist.side() : 0;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int position = row * size + col;
+                PieceColour piece = grid.getPiece(row, col);
+                if (piece == PieceColour.WHITE)
+                    white[position >>> 6] |= 1L << position;
+                else if (piece == PieceColour.BLACK)
+                    black[position >>> 6] |= 1L << position;
+                else
+                    count++;
+                hash ^= zobrist.piece(piece, position);
+            }
+        }
+        // A node lists its moves in the array of its ply, and there is one ply per empty position
+        if (empties.length <= count)
+            empties = new int[count + 1][size * size];
+
+        return search(toMove == PieceColour.WHITE, 0, LOSS, WIN);
+    }
+
+    // Sets up the masks and the scratch bitsets for grids of the given size
+    private void init(int size) {
+        this.size = size;
+        int cells = size * size;
+        words = (cells + 63) >>> 6;
+        all = new long[words];
+        top = new long[words];
+        bottom = new long[words];
+        left = new long[words];
+        right = new long[words];
+        notFirstCol = new long[words];
+        notLastCol = new long[words];
+        for (int position = 0; position < cells; position++) {
+            int row = position / size, col = position % size, word = position >>> 6;
+            long bit = 1L << position;
+            all[word] |= bit;
+            if (row == 0) top[word] |= bit;
+            if (row == size - 1) bottom[word] |= bit;
+            if (col == 0) left[word] |= bit;
+            if (col == size - 1) right[word] |= bit;
+            if (col != 0) notFirstCol[word] |= bit;
+            if (col != size - 1) notLastCol[word] |= bit;
+        }
+        white = new long[words];
+        black = new long[words];
+        allowed = new long[words];
+        reach = new long[words];
+        next = new long[words];
+        shifted = new long[words];
+        empties = new int[0][];
+        zobrist = Zobrist.forSize(size);
+        // Hashes of different sizes come from different keys, but an entry of another size is never useful
+        table.clear();
+    }
+
+    // Returns the result of the position for the player to move (white if whiteToMove), which is at least alpha
+    // and at most beta if the true result is within them; otherwise a bound on the side of the window it is on
+    // The last move did not win, or the search would have stopped there
+    private int search(boolean whiteToMove, int ply, int alpha, int beta) {
+        nodes++;
+        long[] own = whiteToMove ? white : black, other = whiteToMove ? black : white;
+
+        // Lists the empty positions; with none left the game is a draw
+        int[] moves = empties[ply];
+        int count = 0;
+        for (int word = 0; word < words; word++) {
+            long free = all[word] & ~(white[word] | black[word]);
+            while (free != 0) {
+                moves[count++] = (word << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+            }
+        }
+        if (count == 0)
+            return DRAW;
+
+        long key = hash;
+        int alphaOriginal = alpha, hashMove = -1;
+        long entry = table.probe(key);
+        if (entry != TranspositionTable.NONE) {
+            // Every entry is a complete solve, so its depth does not matter
+            // At the root only an exact result is used, as the search there also has to find a move
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            hashMove = TranspositionTable.move(entry);
+            if (bound == TranspositionTable.EXACT) {
+                if (ply == 0) bestMove = hashMove;
+                return score;
+            }
+            if (ply > 0) {
+                if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+                else beta = Math.min(beta, score);
+                if (alpha >= beta) return score;
+            }
+        }
+
+        // A winning move ends the search at once
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (wins(own, move)) {
+                if (ply == 0) bestMove = move;
+                table.store(key, count, TranspositionTable.EXACT, WIN, move);
+                return WIN;
+            }
+        }
+
+        // Early draw detection: a player who cannot connect two opposite edges with every empty position
+        // can do no better than a draw from here on, and if neither player can, the result is a draw
+        boolean ownCanWin = canConnect(own, other), otherCanWin = canConnect(other, own);
+        if (!ownCanWin && !otherCanWin) {
+            if (ply == 0) bestMove = moves[0];
+            table.store(key, count, TranspositionTable.EXACT, DRAW, moves[0]);
+            return DRAW;
+        }
+        if (!ownCanWin) beta = Math.min(beta, DRAW);
+        if (!otherCanWin) alpha = Math.max(alpha, DRAW);
+        if (alpha >= beta && ply > 0) return alpha;
+
+        // The move stored for this position is tried first
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == hashMove) {
+                moves[i] = moves[0];
+                moves[0] = hashMove;
+                break;
+            }
+        }
+
+        int best = LOSS - 1, bestHere = moves[0];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            place(own, move, whiteToMove);
+            int score = -search(!whiteToMove, ply + 1, -beta, -alpha);
+            place(own, move, whiteToMove); // placing the same piece again removes it
+            if (score > best) {
+                best = score;
+                bestHere = move;
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta)
+                break;
+        }
+
+        if (ply == 0) bestMove = bestHere;
+        int bound = best <= alphaOriginal ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, count, bound, best, bestHere);
+        return best;
+    }
+
+    // Places a piece of the player's colour at the position, or removes it if it is there, and updates the hash
+    private void place(long[] own, int position, boolean white) {
+        own[position >>> 6] ^= 1L << position;
+        hash ^= zobrist.piece(white ? PieceColour.WHITE : PieceColour.BLACK, position) ^ zobrist.side();
+    }
+
+    // Returns true if a piece of the player's colour at the (empty) position would connect two opposite edges
+    private boolean wins(long[] own, int position) {
+        for (int word = 0; word < words; word++) {
+            allowed[word] = own[word];
+            reach[word] = 0;
+        }
+        allowed[position >>> 6] |= 1L << position;
+        reach[position >>> 6] = 1L << position;
+        flood();
+        return (intersects(reach, top) && intersects(reach, bottom)) || (intersects(reach, left) && intersects(reach, right));
+    }
+
+    // Returns true if the player's pieces and the empty positions together connect two opposite edges
+    private boolean canConnect(long[] own, long[] other) {
+        for (int word = 0; word < words; word++) {
+            allowed[word] = all[word] & ~other[word];
+            reach[word] = allowed[word] & top[word];
+        }
+        flood();
+        if (intersects(reach, bottom))
+            return true;
+        for (int word = 0; word < words; word++)
+            reach[word] = allowed[word] & left[word];
+        flood();
+        return intersects(reach, right);
+    }
+
+    // Grows reach into its neighbours within allowed until it stops changing
+    private void flood() {
+        boolean changed = true;
+        while (changed) {
+            for (int word = 0; word < words; word++)
+                next[word] = reach[word];
+            shiftUp(reach, 1);
+            orInto(next, notFirstCol); // moved one column to the right, so nothing may land in the first column
+            shiftDown(reach, 1);
+            orInto(next, notLastCol); // moved one column to the left
+            shiftUp(reach, size);
+            orInto(next, null); // moved one row down
+            shiftDown(reach, size);
+            orInto(next, null); // moved one row up
+            changed = false;
+            for (int word = 0; word < words; word++) {
+                long grown = next[word] & allowed[word];
+                if (grown != reach[word]) {
+                    reach[word] = grown;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // Adds the shifted bits to target, keeping only the bits in mask (if any)
+    private void orInto(long[] target, long[] mask) {
+        for (int word = 0; word < words; word++)
+            target[word] |= mask == null ? shifted[word] : shifted[word] & mask[word];
+    }
+
+    // Sets shifted to the bits moved up by the given distance (towards higher positions)
+    private void shiftUp(long[] bits, int distance) {
+        int wordShift = distance >>> 6, bitShift = distance & 63;
+        for (int word = words - 1; word >= 0; word--) {
+            int from = word - wordShift;
+            long value = from >= 0 ? bits[from] << bitShift : 0;
+            if (bitShift != 0 && from - 1 >= 0)
+                value |= bits[from - 1] >>> (64 - bitShift);
+            shifted[word] = value;
+        }
+    }
+
+    // Sets shifted to the bits moved down by the given distance (towards lower positions)
+    private void shiftDown(long[] bits, int distance) {
+        int wordShift = distance >>> 6, bitShift = distance & 63;
+        for (int word = 0; word < words; word++) {
+            int from = word + wordShift;
+            long value = from < words ? bits[from] >>> bitShift : 0;
+            if (bitShift != 0 && from + 1 < words)
+                value |= bits[from + 1] << (64 - bitShift);
+            shifted[word] = value;
+        }
+    }
+
+    private boolean intersects(long[] a, long[] b) {
+        for (int word = 0; word < words; word++)
+            if ((a[word] & b[word]) != 0)
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package ai;
+
+import game.*;
+
+// A chess-style clock for one player: a total amount of thinking time, plus an increment added after every move
+// Used by Minimax to decide how long it may search for each move
+public class GameClock {
+    private long remainingMillis;
+    private long incrementMillis;
+
+    // totalMillis is the thinking time for the whole game
+    // incrementMillis is added back to the clock after every move
+    public GameClock(long totalMillis, long incrementMillis) {
+        if (totalMillis < 1) throw new IllegalArgumentException("totalMillis must be at least 1");
+        if (incrementMillis < 0) throw new IllegalArgumentException("incrementMillis must not be negative");
+        this.remainingMillis = totalMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    // Returns the thinking time left on the clock
+    public long getRemainingMillis() {
+        return remainingMillis;
+    }
+
+    // Returns the time to spend on the next move of the current player
+    // The remaining time is shared equally between the moves the player can still make
+    // (half of the empty positions, rounded up), plus the increment for this move
+    // Half of the remaining time is always kept back, so a single move can never use up the clock
+    public long allocate(Game game) {
+        long movesLeft = Math.max(1, (game.getMoves().size() + 1) / 2);
+        long budget = remainingMillis / movesLeft + incrementMillis;
+        return Math.max(1, Math.min(budget, remainingMillis / 2 + incrementMillis));
+    }
+
+    // Charges the time spent on a move to the clock and adds the increment
+    public void consume(long elapsedMillis) {
+        remainingMillis = Math.max(0, remainingMillis - elapsedMillis) + incrementMillis;
+    }
+}
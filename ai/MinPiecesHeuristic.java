@@ -1,71 +1,139 @@
 package ai;
 import game.*;
-import java.util.*;
 
 // Computes the minimum number of pieces needed to win
 // assuming the other player never places anything.
 // This is a safe lower bound on closeness to winning.
 public class MinPiecesHeuristic implements Heuristic {
 
-    private class Position {
-        int row, col, distance;
+    // The colours of the positions, as read from the grid
+    private static final int EMPTY = 0, OURS = 1, THEIRS = 2;
 
-        Position(int row, int col, int distance) {
-            this.row = row;
-            this.col = col;
-            this.distance = distance;
+    // From this size up the distances are found by the relaxation sweeps of SweepDistance, which give the same result
+    // The sweeps visit every position several times, so on smaller grids the search is faster, as it can stop at the last row;
+    // from 64x64 up the sweeps were faster on both nearly empty and half-full grids
+    static final int SWEEP_MIN_SIZE = 64;
+
+    // Scratch arrays reused by every call on the same thread, so that scoring a search game allocates nothing
+    // Positions are the padded cells of the grid's Topology, so that the neighbours of a position are fixed offsets
+    private static class Scratch {
+        int[] colours = new int[0];
+        int[] distance = new int[0];
+        boolean[] visited = new boolean[0];
+        int[] deque = new int[0];
+
+        void ensureCapacity(int cells) {
+            if (colours.length >= cells)
+                return;
+            colours = new int[cells];
+            distance = new int[cells];
+            visited = new boolean[cells];
+            // Every position enters the deque at most three times (as a start, then with two different distances)
+            // so a power of two of at least four times the cells is enough for the ring buffer never to overflow
+            deque = new int[Integer.highestOneBit(cells * 4 - 1) << 1];
         }
     }
 
-    // Uses Dijkstra's algorithm to find the shortest path
-    // Locations with the same colour as ours have weight 0
-    // Empty locations have weight 1
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Uses a 0-1 breadth-first search to find the shortest path
+    // Leaving a location with the same colour as ours costs 0
+    // Leaving an empty location costs 1
     // Locations with the other colour are impassable
-    private int dijkstra(Grid grid, PieceColour piece, int startr, int startc, int endr, int endc) {
-        PriorityQueue<Position> queue = new PriorityQueue<>(new Comparator<Position>() {
-            @Override
-            public int compare(Position a, Position b) {
-                return a.distance - b.distance;
+    // Starting locations cost 0 if they are ours and 1 otherwise, and ending on any location of the end row or column is allowed
+    // These are the same weights as the Dijkstra search this replaced, so the distances are the same
+    // Only two distances are ever in the deque at once, so adding 0-cost steps at the front and 1-cost steps at the back
+    // keeps it sorted without a priority queue
+    // The border cells of the padded board get the smallest distance there is, so no step ever improves on it
+    // and the search never leaves the grid, without checking the bounds of every neighbour
+    // Returns the shortest distance from the start row (or column) to the end row (or column),
+    // or limit if it is not less than limit
+    private int bfs(Scratch scratch, Topology topology, boolean rows, int limit) {
+        int[] colours = scratch.colours, distance = scratch.distance, deque = scratch.deque;
+        int[] offsets = topology.getNeighbourOffsets();
+        boolean[] visited = scratch.visited;
+        int size = topology.getSize(), cells = topology.getPaddedCells(), mask = deque.length - 1;
+        int end = rows ? PathFinder.BOTTOM : PathFinder.RIGHT;
+        for (int i = 0; i < cells; i++) {
+            distance[i] = Integer.MAX_VALUE;
+            visited[i] = false;
+        }
+        topology.markBorder(distance, Integer.MIN_VALUE);
+
+        // The deque holds positions from head (inclusive) to tail (exclusive), modulo its length
+        int head = 0, tail = 0;
+        for (int i = 0; i < size; i++) {
+            int start = rows ? topology.pad(0, i) : topology.pad(i, 0);
+            if (colours[start] == OURS) {
+                distance[start] = 0;
+                head = (head - 1) & mask;
+                deque[head] = start;
+            } else if (distance[start] > 1) {
+                distance[start] = 1;
+                deque[tail] = start;
+                tail = (tail + 1) & mask;
             }
-        });
-        boolean[][] visited = new boolean[grid.getSize()][grid.getSize()];
-        for (int i = 0; i < grid.getSize(); ++i) {
-            if (startr != -1)
-                queue.offer(new Position(startr, i, grid.getPiece(startr, i) == piece ? 0 : 1));
-            if (startc != -1)
-                queue.offer(new Position(i, startc, grid.getPiece(i, startc) == piece ? 0 : 1));
         }
-        int[][] dirs = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
-        while (!queue.isEmpty()) {
-            Position pos = queue.poll();
-            if (visited[pos.row][pos.col])
+
+        while (head != tail) {
+            int pos = deque[head];
+            head = (head + 1) & mask;
+            if (visited[pos])
                 continue;
-            visited[pos.row][pos.col] = true;
-            if (pos.row == endr || pos.col == endc)
-                return pos.distance;
-            for (int d = 0; d < dirs.length; d++) {
-                int row = pos.row + dirs[d][0];
-                int col = pos.col + dirs[d][1];
-                if (row < 0 || row >= grid.getSize() || col < 0 || col >= grid.getSize())
-                    continue;
-                if (visited[row][col])
+            visited[pos] = true;
+            int dist = distance[pos];
+            if (dist >= limit)
+                return limit;
+            if ((topology.edges(pos) & end) != 0)
+                return dist;
+            if (colours[pos] == THEIRS)
+                continue;
+            int cost = colours[pos] == OURS ? 0 : 1;
+            for (int offset : offsets) {
+                int next = pos + offset;
+                if (visited[next] || dist + cost >= distance[next])
                     continue;
-                if (grid.getPiece(pos.row, pos.col) == piece) {
-                    queue.offer(new Position(row, col, pos.distance));
-                } else if (grid.getPiece(pos.row, pos.col) == PieceColour.NONE) {
-                    queue.offer(new Position(row, col, pos.distance + 1));
+                distance[next] = dist + cost;
+                if (cost == 0) {
+                    head = (head - 1) & mask;
+                    deque[head] = next;
+                } else {
+                    deque[tail] = next;
+                    tail = (tail + 1) & mask;
                 }
             }
         }
-        return grid.getSize() * grid.getSize();
+        return limit;
+    }
+
+    // Returns the fewest pieces the player needs for a path from the top row to the bottom row
+    // or from the left column to the right column, whichever is smaller
+    // Both searches share the scratch arrays, and the second one stops as soon as it cannot beat the first
+    private int minPieces(Grid grid, PieceColour player) {
+        int size = grid.getSize();
+        if (size >= SWEEP_MIN_SIZE)
+            return SweepDistance.minPieces(grid, player);
+        Topology topology = Topology.forSize(size);
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(topology.getPaddedCells());
+        int[] colours = scratch.colours;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                PieceColour piece = grid.getPiece(row, col);
+                colours[topology.pad(row, col)] = piece == player ? OURS : piece == PieceColour.NONE ? EMPTY : THEIRS;
+            }
+        }
+        int unreachable = size * size;
+        int topToBottom = bfs(scratch, topology, true, unreachable);
+        return bfs(scratch, topology, false, topToBottom);
     }
 
+    // A SearchGame hands out a read-only view of its grid, so scoring one copies nothing
     @Override
     public int score(Game game) {
-        var grid = game.getGrid();
+        var grid = game instanceof SearchGame ? ((SearchGame) game).getGridView() : game.getGrid();
         var player = game.currentPlayer();
-        return -Math.min(dijkstra(grid, player, 0, -1, grid.getSize() - 1, -1),
-                dijkstra(grid, player, -1, 0, -1, grid.getSize() - 1));
+        return -minPieces(grid, player);
     }
 
 }
@@ -1,84 +1,554 @@
 package ai;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
 import game.*;
 
 // An implementation of the Minimax algorithm
-public class Minimax implements AI {
+public class Minimax implements AI, AutoCloseable {
+    // The memory used by the transposition table unless another budget is given
+    public static final long DEFAULT_TABLE_BYTES = 16 << 20;
+
+    // Mixed into the hash of every position when the search is for black,
+    // as scores are stored from the point of view of the player the search is for
+    private static final long BLACK_PLAYER_KEY = 0x9E3779B97F4A7C15L;
+
+    // The number of empty positions at or below which the game is solved exactly, unless another number is given
+    public static final int DEFAULT_ENDGAME_EMPTIES = 10;
+
+    // How many nodes a thread searches between checks of the clock and the node limit (a power of two)
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
     private int maxDepth;
     private Heuristic heuristic;
+    private TranspositionTable table;
+
+    // The limits of the time-bounded mode, in which the search deepens one move at a time
+    // and returns the best move of the last depth completed before a limit was reached
+    // clock is null and nodeLimit is 0 when there is no such limit
+    private GameClock clock;
+    private long nodeLimit;
+
+    // The number of threads searching the moves at the root, and the pool they run in
+    // With more than one thread, the first root move is searched alone to get a bound on the score,
+    // and the remaining moves are then searched in parallel using that bound (Young Brothers Wait)
+    // Each thread has its own copy of the game, and they share the transposition table
+    private WorkerPool workers = new WorkerPool(1);
+
+    // The state shared by all threads of the current search: the nodes searched, the time it must end by
+    // (from System.nanoTime()), whether it may be aborted (only once a move has been found) and whether it has been
+    private AtomicLong nodes = new AtomicLong();
+    private volatile long deadline;
+    private volatile boolean abortable;
+    private volatile boolean aborted;
+
+    // The score of the move returned by the last call of searchRoot(), and the time the last move took
+    private long rootScore;
+    private long elapsedNanos;
+
+    // The index in the list of root moves of the best move found by searchRootParallel()
+    private int bestIndex;
+
+    // Searches the root and the first root move, and keeps its move ordering between moves
+    // so that the history scores carry over to the next search
+    private Searcher searcher;
+    private Random random = new Random();
+
+    // The size of the grid being searched, for storing moves as positions (row * size + col)
+    private int size;
+
+    // Whether the search treats the 8 rotations and reflections of a position as the same position (see game.Symmetry)
+    // The transposition table is then keyed by the canonical hash, with its moves stored on the canonical image,
+    // and of the root moves which lead to symmetric positions only one is searched
+    // Only used for games which implement SearchGame, and off unless turned on by setSymmetryReduction()
+    private boolean symmetryReduction;
+    private Symmetry symmetry;
+
+    // Once a position has this many empty positions or fewer, the move is chosen by the EndgameSolver instead,
+    // which finds the result with perfect play instead of estimating it at a depth limit (0 turns it off)
+    private int endgameEmpties = DEFAULT_ENDGAME_EMPTIES;
+    private EndgameSolver solver;
 
 
     // maxDepth is the number of moves ahead to look
     // heuristic is used to estimate the quality of a non-terminal game state
     public Minimax(int maxDepth, Heuristic heuristic) {
+        this(maxDepth, heuristic, DEFAULT_TABLE_BYTES);
+    }
+
+    // tableBytes is the memory budget of the transposition table, or 0 for no table
+    // The table is only used for games which implement SearchGame, as it needs the hash of each position
+    public Minimax(int maxDepth, Heuristic heuristic, long tableBytes) {
         if (maxDepth < 1) throw new IllegalArgumentException("maxDepth must be at least 1");
+        if (tableBytes < 0) throw new IllegalArgumentException("tableBytes must not be negative");
         this.maxDepth = maxDepth;
         this.heuristic = heuristic;
+        this.table = tableBytes > 0 ? new TranspositionTable(tableBytes) : null;
+    }
+
+    // Searches in the time-bounded mode, with the time for each move allocated from the given clock
+    // maxDepth is then the deepest the search can go if time allows
+    public Minimax(int maxDepth, Heuristic heuristic, GameClock clock) {
+        this(maxDepth, heuristic, DEFAULT_TABLE_BYTES);
+        this.clock = clock;
+    }
+
+    // Limits the number of nodes searched for each move, or removes the limit if nodeLimit is 0
+    // Like a clock, a node limit makes the search deepen one move at a time until the limit is reached
+    public void setNodeLimit(long nodeLimit) {
+        if (nodeLimit < 0) throw new IllegalArgumentException("nodeLimit must not be negative");
+        this.nodeLimit = nodeLimit;
+    }
+
+    // Seeds the random number generator which breaks ties between equally good moves in the move ordering
+    // With a seed, the AI always chooses the same move in the same position, which makes benchmarks reproducible
+    // (when searching with one thread, as the timing of the threads also affects the choice)
+    public void setSeed(long seed) {
+        random = new Random(seed);
+        searcher = null;
+    }
+
+    // Turns the symmetry reduction on or off (it is off unless turned on)
+    // Symmetric positions have the same winner, but a heuristic does not have to give them the same score
+    // (MinPiecesHeuristic counts the ends of a path differently), so with it on, a score found for one position
+    // is used for a symmetric one, and the search can choose a different move than it would without it
+    // It should only be turned on with a heuristic which gives symmetric positions the same score
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        this.symmetryReduction = symmetryReduction;
+    }
+
+    // Sets the number of empty positions at or below which the game is solved exactly, or turns the solver off if it is 0
+    // A position the solver finds won or drawn is played perfectly from then on; in a lost position the normal search
+    // chooses the move instead, as every move loses against perfect play but some are harder to answer than others
+    // The solver ignores the clock and the node limit, so the number should stay small (the default is 10)
+    public void setEndgameEmpties(int endgameEmpties) {
+        if (endgameEmpties < 0) throw new IllegalArgumentException("endgameEmpties must not be negative");
+        this.endgameEmpties = endgameEmpties;
     }
 
-    // Returns the list of moves in a random order
-    private ArrayList<Move> getMoves(Game game) {
-        var moves = new ArrayList<>(game.getMoves());
-        Collections.shuffle(moves, new Random());
-        return moves;
+    // Sets the number of threads to search with
+    // The heuristic must be safe to call from several threads at once when threads is more than 1
+    public void setThreads(int threads) {
+        workers = workers.withThreads(threads);
     }
 
-    // Returns the score of the best move for the current player
-    // Uses minimax with alpha-beta pruning
-    private long minimax(Game game, int depth, long alpha, long beta, PieceColour player) {
-        if (game.isOver() || depth == 0) {
-            if (game.winner() == player) return Integer.MAX_VALUE;
-            else if (game.winner() != PieceColour.NONE) return Integer.MIN_VALUE;
-            return heuristic.score(game);
+    // Shuts down the threads of a parallel search; the AI can still be used, and then searches on the calling thread
+    @Override
+    public void close() {
+        setThreads(1);
+    }
+
+    // Returns the number of nodes searched for the last move, by all threads
+    public long getNodeCount() {
+        return nodes.get();
+    }
+
+    // Returns the score of the last move returned, from the point of view of the player who made it
+    public long getLastScore() {
+        return rootScore;
+    }
+
+    // Returns the time taken to choose the last move, in nanoseconds
+    public long getLastSearchNanos() {
+        return elapsedNanos;
+    }
+
+    // Thrown to end a search once its time or node limit is reached
+    // It has no stack trace, as it is only used to unwind the search quickly
+    private static class SearchAborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchAborted() {
+            super(null, null, false, false);
         }
+    }
 
-        var moves = getMoves(game);
+    // Makes the move at the given position (row * size + col) and returns the resulting game
+    // A SearchGame is changed in place and reverted later by undo(), so no copy is made
+    // Any other Game is copied first, so that the game passed in is left unchanged
+    private Game play(Game game, int position) {
+        if (game instanceof SearchGame) {
+            ((SearchGame) game).makeMove(position);
+            return game;
+        }
+        Game newGame = game.copy();
+        newGame.makeMove(MoveImpl.of(size, position));
+        return newGame;
+    }
 
-        if (game.currentPlayer() == player) {
-            long bestScore = Integer.MIN_VALUE;
-            for (Move move : moves) {
-                Game newGame = game.copy();
-                newGame.makeMove(move);
-                long score = minimax(newGame, depth - 1, alpha, beta, player);
-                bestScore = Math.max(bestScore, score);
-                if (bestScore >= beta) return bestScore;
-                alpha = Math.max(alpha, score);
+    // Fills the list with the positions of the valid moves of the game
+    // A SearchGame lists them without creating Move objects
+    private void listMoves(Game game, MoveList moves) {
+        if (game instanceof SearchGame) {
+            ((SearchGame) game).getMoves(moves);
+            return;
+        }
+        moves.clear();
+        for (Move move : game.getMoves())
+            moves.add(move.getRow() * size + move.getCol());
+    }
+
+    // Reverts a move made by play()
+    private void undo(Game game, Game newGame) {
+        if (newGame == game)
+            ((SearchGame) game).unmakeMove();
+    }
+
+    // Returns the key of the position in the transposition table, which depends on the player the search is for
+    // With the symmetry reduction, symmetric positions have the same key
+    private long tableKey(Game game, PieceColour player) {
+        SearchGame searchGame = (SearchGame) game;
+        long hash = symmetryReduction ? searchGame.getCanonicalHash() : searchGame.getHash();
+        return hash ^ (player == PieceColour.BLACK ? BLACK_PLAYER_KEY : 0);
+    }
+
+    // Returns the best move of a table entry as a position on this game's grid, or -1 if it has none
+    // With the symmetry reduction, the move is stored on the canonical image of the position
+    private int tableMove(Game game, long entry) {
+        int move = TranspositionTable.move(entry);
+        if (move < 0 || !symmetryReduction)
+            return move;
+        return symmetry.unmap(((SearchGame) game).getCanonicalSymmetry(), move);
+    }
+
+    // Stores a result in the transposition table, classifying the score against the original alpha-beta window
+    // bestMove is the position of the best move, or -1 if there is none
+    private void store(Game game, long key, int depth, long score, long alpha, long beta, int bestMove) {
+        int bound = score <= alpha ? TranspositionTable.UPPER
+                : score >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        if (bestMove >= 0 && symmetryReduction)
+            bestMove = symmetry.map(((SearchGame) game).getCanonicalSymmetry(), bestMove);
+        table.store(key, depth, bound, (int) score, bestMove);
+    }
+
+    // With the symmetry reduction, removes the moves which lead to the same position as an earlier move up to symmetry
+    // If the grid looks the same after some of the 8 symmetries, the moves those symmetries turn into each other
+    // lead to symmetric positions, so only the one with the lowest position is kept
+    // Returns the move to search first (hashMove, or the move kept in its place), or -1 if there is none
+    private int removeSymmetricMoves(Game game, MoveList moves, int hashMove) {
+        if (!symmetryReduction || !(game instanceof SearchGame))
+            return hashMove;
+        Grid grid = ((SearchGame) game).getGridView();
+        int[] symmetries = new int[Symmetry.COUNT];
+        int count = 0;
+        for (int s = 0; s < Symmetry.COUNT; s++)
+            if (s == Symmetry.IDENTITY || symmetry.isSymmetric(grid, s))
+                symmetries[count++] = s;
+        if (count == 1)
+            return hashMove;
+
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (representative(move, symmetries, count) == move)
+                moves.set(kept++, move);
+        }
+        moves.truncate(kept);
+        return hashMove < 0 ? -1 : representative(hashMove, symmetries, count);
+    }
+
+    // Returns the lowest position the given symmetries turn the move into
+    private int representative(int move, int[] symmetries, int count) {
+        int lowest = move;
+        for (int i = 0; i < count; i++)
+            lowest = Math.min(lowest, symmetry.map(symmetries[i], move));
+        return lowest;
+    }
+
+    // The state of one search thread: its move ordering, its move lists and how many nodes it has searched
+    private class Searcher {
+        private MoveOrdering ordering;
+        private long pendingNodes;
+
+        // One list of moves per ply, refilled at every node, so that listing moves allocates nothing
+        private MoveList[] moveLists = new MoveList[0];
+
+        // The depth of the current iteration, so that the ply of a node is searchDepth - depth
+        private int searchDepth;
+
+        Searcher(Random random) {
+            ordering = new MoveOrdering(size, random);
+        }
+
+        // Returns the move list of the given ply
+        private MoveList moveList(int ply) {
+            if (ply >= moveLists.length)
+                moveLists = Arrays.copyOf(moveLists, ply + 1);
+            if (moveLists[ply] == null)
+                moveLists[ply] = new MoveList(size * size);
+            return moveLists[ply];
+        }
+
+        // Counts a node, and every CLOCK_CHECK_INTERVAL nodes adds the count to the shared total
+        // and aborts the search if a limit has been reached (or another thread has aborted it)
+        private void countNode() {
+            if (++pendingNodes < CLOCK_CHECK_INTERVAL)
+                return;
+            long total = flushNodes();
+            if (!abortable)
+                return;
+            if (aborted || (nodeLimit > 0 && total >= nodeLimit) || (clock != null && System.nanoTime() > deadline)) {
+                aborted = true;
+                throw new SearchAborted();
             }
-            return bestScore;
-        } else {
-            long bestScore = Integer.MAX_VALUE;
-            for (Move move : moves) {
-                Game newGame = game.copy();
-                newGame.makeMove(move);
-                long score = minimax(newGame, depth - 1, alpha, beta, player);
-                bestScore = Math.min(bestScore, score);
-                if (bestScore <= alpha) return bestScore;
-                beta = Math.min(beta, score);
+        }
+
+        // Adds the nodes counted since the last call to the shared total, and returns the total
+        private long flushNodes() {
+            long total = nodes.addAndGet(pendingNodes);
+            pendingNodes = 0;
+            return total;
+        }
+
+        // Returns the score of the best move for the current player
+        // Uses minimax with alpha-beta pruning
+        // Positions already searched at least this deep are answered or narrowed by the transposition table
+        private long minimax(Game game, int depth, long alpha, long beta, PieceColour player) {
+            countNode();
+            if (game.isOver() || depth == 0) {
+                if (game.winner() == player) return Integer.MAX_VALUE;
+                else if (game.winner() != PieceColour.NONE) return Integer.MIN_VALUE;
+                return heuristic.score(game);
+            }
+
+            boolean useTable = table != null && game instanceof SearchGame;
+            long key = 0, alphaOriginal = alpha, betaOriginal = beta;
+            int hashMove = -1;
+            if (useTable) {
+                key = tableKey(game, player);
+                long entry = table.probe(key);
+                if (entry != TranspositionTable.NONE)
+                    hashMove = tableMove(game, entry);
+                if (entry != TranspositionTable.NONE && TranspositionTable.depth(entry) >= depth) {
+                    long score = TranspositionTable.score(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT) return score;
+                    if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+                    else beta = Math.min(beta, score);
+                    if (alpha >= beta) return score;
+                }
+            }
+
+            int ply = searchDepth - depth;
+            MoveList moves = moveList(ply);
+            listMoves(game, moves);
+            ordering.order(moves, hashMove, ply, game.currentPlayer());
+            int bestMove = -1;
+
+            if (game.currentPlayer() == player) {
+                long bestScore = Integer.MIN_VALUE;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    Game newGame = play(game, move);
+                    long score = minimax(newGame, depth - 1, alpha, beta, player);
+                    undo(game, newGame);
+                    if (score > bestScore || bestMove < 0) bestMove = move;
+                    bestScore = Math.max(bestScore, score);
+                    if (bestScore >= beta) {
+                        ordering.cutoff(move, ply, depth, player);
+                        break;
+                    }
+                    alpha = Math.max(alpha, score);
+                }
+                if (useTable) store(game, key, depth, bestScore, alphaOriginal, betaOriginal, bestMove);
+                return bestScore;
+            } else {
+                long bestScore = Integer.MAX_VALUE;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    Game newGame = play(game, move);
+                    long score = minimax(newGame, depth - 1, alpha, beta, player);
+                    undo(game, newGame);
+                    if (score < bestScore || bestMove < 0) bestMove = move;
+                    bestScore = Math.min(bestScore, score);
+                    if (bestScore <= alpha) {
+                        ordering.cutoff(move, ply, depth, game.currentPlayer());
+                        break;
+                    }
+                    beta = Math.min(beta, score);
+                }
+                if (useTable) store(game, key, depth, bestScore, alphaOriginal, betaOriginal, bestMove);
+                return bestScore;
+            }
+        }
+
+        // Returns the score of one root move (a position), searched with the given lower bound on the root score
+        private long searchMove(Game game, int move, int depth, long alpha, PieceColour player) {
+            searchDepth = depth;
+            try {
+                Game newGame = play(game, move);
+                long score = minimax(newGame, depth - 1, alpha, Integer.MAX_VALUE, player);
+                undo(game, newGame);
+                return score;
+            } finally {
+                flushNodes();
             }
-            return bestScore;
         }
     }
 
     @Override
     public Move getCurrentPlayerMove(Game game) {
-        var moves = getMoves(game);
-        Move bestMove = moves.get(0);
-        long bestScore = Integer.MIN_VALUE, alpha = Integer.MIN_VALUE, beta = Integer.MAX_VALUE;
-        for (Move move : moves) {
-            Game newGame = game.copy();
-            newGame.makeMove(move);
-            long score = minimax(newGame, maxDepth-1, alpha, beta, game.currentPlayer());
-            if (score > bestScore) {
-                bestScore = score;
-                bestMove = move;
+        // The search works on a single copy of the game, so the caller's game is never changed
+        // If the copy is a SearchGame, every other position is reached by making and undoing moves on it
+        long start = System.nanoTime();
+        game = game.copy();
+        size = game instanceof SearchGame ? ((SearchGame) game).getGridView().getSize() : game.getGrid().getSize();
+        symmetry = symmetryReduction ? Symmetry.forSize(size) : null;
+        nodes.set(0);
+        aborted = false;
+        if (searcher == null || searcher.ordering.getSize() != size)
+            searcher = new Searcher(random);
+        searcher.ordering.newSearch(maxDepth);
+
+        // With few empty positions left, the game is solved exactly instead
+        listMoves(game, searcher.moveList(0));
+        if (searcher.moveList(0).size() <= endgameEmpties && !game.isOver()) {
+            if (solver == null)
+                solver = new EndgameSolver();
+            int result = solver.solve(game);
+            nodes.addAndGet(solver.getNodeCount());
+            if (result != EndgameSolver.LOSS) {
+                // A won position has the same score as a win found by the search; a draw scores 0
+                rootScore = result == EndgameSolver.WIN ? Integer.MAX_VALUE : 0;
+                elapsedNanos = System.nanoTime() - start;
+                if (clock != null)
+                    clock.consume(elapsedNanos / 1_000_000);
+                return MoveImpl.of(size, solver.getBestMove());
             }
-            alpha = Math.max(alpha, score);
         }
+
+        // The best move found by an earlier search of this position, if the table still has it
+        int hashMove = -1;
+        if (table != null && game instanceof SearchGame) {
+            long entry = table.probe(tableKey(game, game.currentPlayer()));
+            if (entry != TranspositionTable.NONE)
+                hashMove = tableMove(game, entry);
+        }
+
+        // Without a limit, the search goes straight to maxDepth
+        if (clock == null && nodeLimit == 0) {
+            abortable = false;
+            int bestMove = searchRoot(game, maxDepth, hashMove);
+            elapsedNanos = System.nanoTime() - start;
+            return MoveImpl.of(size, bestMove);
+        }
+
+        // With a limit, the search is repeated one move deeper each time
+        // The best move of each depth is searched first at the next depth, which helps alpha-beta pruning
+        if (clock != null)
+            deadline = start + clock.allocate(game) * 1_000_000;
+        abortable = false;
+        int bestMove = -1;
+        long bestScore = 0;
+        listMoves(game, searcher.moveList(0));
+        int depthLimit = Math.min(maxDepth, searcher.moveList(0).size());
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            try {
+                bestMove = searchRoot(game, depth, hashMove);
+                bestScore = rootScore;
+            } catch (SearchAborted e) {
+                // The game copy is left part way through the search, but it is not used again
+                break;
+            }
+            abortable = true;
+            if (rootScore == Integer.MAX_VALUE || rootScore == Integer.MIN_VALUE)
+                break; // The result is already certain, so searching deeper cannot change it
+            hashMove = bestMove;
+        }
+        rootScore = bestScore;
+        elapsedNanos = System.nanoTime() - start;
+        if (clock != null)
+            clock.consume(elapsedNanos / 1_000_000);
+        return MoveImpl.of(size, bestMove);
+    }
+
+    // Searches every move at the root to the given depth and returns the position of the best one
+    // hashMove is the position of the move to search first, or -1 if there is none
+    private int searchRoot(Game game, int depth, int hashMove) {
+        PieceColour player = game.currentPlayer();
+        MoveList moves = searcher.moveList(0);
+        listMoves(game, moves);
+        hashMove = removeSymmetricMoves(game, moves, hashMove);
+        searcher.ordering.order(moves, hashMove, 0, player);
+        int bestMove = moves.get(0);
+        long bestScore = Integer.MIN_VALUE, alpha = Integer.MIN_VALUE;
+        if (workers.getThreads() == 1 || moves.size() == 1) {
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                long score = searcher.searchMove(game, move, depth, alpha, player);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                }
+                alpha = Math.max(alpha, score);
+            }
+        } else {
+            bestScore = searchRootParallel(game, moves, depth, player);
+            bestMove = moves.get(bestIndex);
+        }
+
+        // The root is searched with a full window, so its score is exact
+        if (table != null && game instanceof SearchGame)
+            store(game, tableKey(game, player), depth, bestScore, Integer.MIN_VALUE, Integer.MAX_VALUE, bestMove);
+        rootScore = bestScore;
         return bestMove;
     }
-    
+
+    // Searches the first root move on this thread, then the remaining ones in parallel, and returns the best score
+    // Each remaining move is searched with the best score known when its search starts as the lower bound (alpha)
+    // A score above that bound is exact, and a score at or below it only shows that the move is no better
+    // The best score is therefore the same as a serial search would find, and the move chosen is one with that score
+    private long searchRootParallel(Game game, MoveList rootMoves, int depth, PieceColour player) {
+        // The tasks read their moves from a copy, as the list belongs to the searcher of this thread
+        int[] moves = rootMoves.toArray();
+        long firstScore = searcher.searchMove(game, moves[0], depth, Integer.MIN_VALUE, player);
+        AtomicLong sharedAlpha = new AtomicLong(firstScore);
+        long[] scores = new long[moves.length];
+        long[] alphas = new long[moves.length];
+        scores[0] = firstScore;
+        alphas[0] = Integer.MIN_VALUE;
+
+        // Every task gets its own copy of the game and its own move ordering, created on this thread
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 1; i < moves.length; i++) {
+            int index = i;
+            Game taskGame = game.copy();
+            Searcher taskSearcher = new Searcher(new Random(random.nextLong()));
+            taskSearcher.ordering.newSearch(maxDepth);
+            tasks.add(() -> {
+                long alpha = sharedAlpha.get();
+                long score = taskSearcher.searchMove(taskGame, moves[index], depth, alpha, player);
+                alphas[index] = alpha;
+                scores[index] = score;
+                sharedAlpha.accumulateAndGet(score, Math::max);
+                return null;
+            });
+        }
+        try {
+            workers.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchAborted();
+        }
+
+        // Chooses the first move with the best score among the moves whose score is exact
+        // (invokeAll() has waited for every task, so their results are visible here)
+        long bestScore = Integer.MIN_VALUE;
+        for (long score : scores)
+            bestScore = Math.max(bestScore, score);
+        bestIndex = 0;
+        for (int i = 0; i < moves.length; i++) {
+            if (scores[i] == bestScore && scores[i] > alphas[i]) {
+                bestIndex = i;
+                break;
+            }
+        }
+        return bestScore;
+    }
+
 }
@@ -0,0 +1,395 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+import game.*;
+
+// An implementation of Monte Carlo Tree Search (MCTS) with the UCT selection rule
+// Instead of a heuristic, positions are judged by playing many random games (playouts) from them
+// This scales to larger boards than Minimax, as the cost of a playout grows with the number of positions
+// rather than exponentially with the depth
+//
+// The tree is stored in parallel arrays indexed by node number, rather than as one object per node
+// It is grown progressively: every iteration adds at most one node, for the next untried move of the node it reaches,
+// so the tree never has more nodes than iterations, whatever the size of the grid
+// With more than one thread, every thread grows its own tree from the same position (root parallelisation)
+// and the visit counts of the root moves are added up at the end
+// The trees and their arrays are kept from one move to the next, so a search allocates nothing once they are large enough
+public class MonteCarlo implements AI, AutoCloseable {
+    // The exploration constant of UCT: higher values try less promising moves more often
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    // How many iterations are run between checks of the clock
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    // The most nodes a tree can have (about 34 bytes each); once full, the iterations go on with playouts from its leaves
+    static final int MAX_NODES = 1 << 20;
+
+    private int iterations;
+    private long timeLimitMillis;
+    private WorkerPool workers = new WorkerPool(1);
+    private Random random = new Random();
+    // The tree of each thread, reused by every search
+    private List<Tree> trees = new ArrayList<>();
+
+    // iterations is the number of playouts per move, shared between the threads
+    public MonteCarlo(int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be at least 1");
+        this.iterations = iterations;
+    }
+
+    // Also stops the search once the given time has passed, or removes the limit if timeLimitMillis is 0
+    public void setTimeLimit(long timeLimitMillis) {
+        if (timeLimitMillis < 0) throw new IllegalArgumentException("timeLimitMillis must not be negative");
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    // Sets the number of threads, each of which grows its own tree
+    public void setThreads(int threads) {
+        workers = workers.withThreads(threads);
+    }
+
+    // Releases the pool of threads; later searches grow a single tree on the calling thread
+    @Override
+    public void close() {
+        setThreads(1);
+    }
+
+    // Seeds the random number generator used for the playouts, which makes the search reproducible with one thread
+    public void setSeed(long seed) {
+        random = new Random(seed);
+    }
+
+    @Override
+    public Move getCurrentPlayerMove(Game game) {
+        long deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        // The pieces are only read while the trees are set up, so a view of a SearchGame's grid is enough
+        Grid grid = game instanceof SearchGame ? ((SearchGame) game).getGridView() : game.getGrid();
+        int size = grid.getSize();
+        int threads = workers.getThreads();
+
+        // Every tree gets its own copy of the game and its own random number generator, created on this thread
+        // The trees of threads which are no longer used are dropped, so that their memory is released
+        if (trees.size() > threads)
+            trees.subList(threads, trees.size()).clear();
+        while (trees.size() < threads)
+            trees.add(new Tree());
+        for (int t = 0; t < threads; t++) {
+            int share = iterations / threads + (t < iterations % threads ? 1 : 0);
+            trees.get(t).reset(searchCopy(game, grid), grid, Math.max(1, share), deadline,
+                    new SplittableRandom(random.nextLong()));
+        }
+        if (threads == 1) {
+            trees.get(0).search();
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Tree tree : trees)
+                tasks.add(() -> {
+                    tree.search();
+                    return null;
+                });
+            // An interrupted search stops waiting and uses what the trees have found so far
+            try {
+                workers.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // The most visited root move is the most reliable choice
+        // Every tree tries the root moves in its own order, so their visits are added up by position
+        long[] visits = new long[size * size];
+        for (Tree tree : trees)
+            for (int child = tree.firstChild[0]; child != -1; child = tree.nextSibling[child])
+                visits[tree.move[child]] += tree.visits[child];
+        int best = 0;
+        for (int position = 1; position < visits.length; position++)
+            if (visits[position] > visits[best])
+                best = position;
+        return MoveImpl.of(size, best);
+    }
+
+    // Returns a copy of the game whose moves can be undone
+    // A game which is not a SearchGame is rebuilt as a GameImpl by placing its pieces again, white and black in turn
+    // (any order gives the same position, and no earlier position can already be won if this one is not)
+    private SearchGame searchCopy(Game game, Grid grid) {
+        Game copy = game.copy();
+        if (copy instanceof SearchGame)
+            return (SearchGame) copy;
+        int size = grid.getSize();
+        List<Move> white = new ArrayList<>(), black = new ArrayList<>();
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                if (grid.getPiece(row, col) == PieceColour.WHITE)
+                    white.add(MoveImpl.of(size, row, col));
+                else if (grid.getPiece(row, col) == PieceColour.BLACK)
+                    black.add(MoveImpl.of(size, row, col));
+        GameImpl rebuilt = new GameImpl(size);
+        for (int i = 0; i < white.size(); i++) {
+            rebuilt.makeMove(white.get(i));
+            if (i < black.size())
+                rebuilt.makeMove(black.get(i));
+        }
+        return rebuilt;
+    }
+
+    // One search tree, grown by one thread
+    private static class Tree {
+        // The colours of the positions, the same codes as on a padded board of the grid's Topology
+        private static final byte EMPTY = Topology.EMPTY, WHITE = Topology.WHITE, BLACK = Topology.BLACK;
+        private static final int TOP = PathFinder.TOP, BOTTOM = PathFinder.BOTTOM, LEFT = PathFinder.LEFT, RIGHT = PathFinder.RIGHT;
+
+        private SearchGame game;
+        private int size;
+        private int iterations;
+        private long deadline;
+        private SplittableRandom random;
+
+        // The board of the position being searched, kept in step with the game as moves are made and undone
+        private byte[] board;
+
+        // The nodes, node 0 being the root
+        // move is the position (row * size + col) of the move leading to the node, and mover the colour that made it
+        // wins counts the playouts through the node won by mover (draws count as half a win)
+        // The children of a node form a list from firstChild through nextSibling (-1 ends it), newest first
+        // untried is how far through order the node has added children: every empty position before it has one
+        // The arrays grow as nodes are added, up to one node per iteration (and at most MAX_NODES)
+        private int nodeCount;
+        private int[] parent, firstChild, nextSibling, untried, move, visits;
+        private byte[] mover;
+        private double[] wins;
+
+        // The order in which every node tries its moves, a random permutation of the positions chosen for each search
+        private int[] order;
+
+        // Scratch arrays for the playouts: the board, the empty positions in the order they are filled,
+        // and the disjoint-set forest (with the edges touched by every set) used to find the winner
+        // They are laid out on the padded cells of the grid's Topology, so place() finds the neighbours by fixed offsets,
+        // and the border cells of playoutBoard hold Topology.BORDER, which is never the colour being placed
+        private Topology topology;
+        private int[] offsets;
+        private byte[] playoutBoard;
+        private int[] empties, sets, edges;
+
+        Tree() {
+            size = -1;
+            int capacity = 1024;
+            parent = new int[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            untried = new int[capacity];
+            move = new int[capacity];
+            visits = new int[capacity];
+            mover = new byte[capacity];
+            wins = new double[capacity];
+        }
+
+        // Starts a new search of the game, keeping the arrays of the last one if the grid is the same size
+        void reset(SearchGame game, Grid grid, int iterations, long deadline, SplittableRandom random) {
+            this.game = game;
+            this.iterations = iterations;
+            this.deadline = deadline;
+            this.random = random;
+            if (size != grid.getSize()) {
+                size = grid.getSize();
+                board = new byte[size * size];
+                order = new int[size * size];
+                topology = Topology.forSize(size);
+                offsets = topology.getNeighbourOffsets();
+                playoutBoard = topology.newBoard();
+                empties = new int[size * size];
+                sets = new int[topology.getPaddedCells()];
+                edges = new int[topology.getPaddedCells()];
+            }
+            for (int row = 0; row < size; row++)
+                for (int col = 0; col < size; col++)
+                    board[row * size + col] = colour(grid.getPiece(row, col));
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+
+            nodeCount = 1;
+            parent[0] = -1;
+            firstChild[0] = -1;
+            nextSibling[0] = -1;
+            untried[0] = 0;
+            move[0] = -1;
+            visits[0] = 0;
+            wins[0] = 0;
+            mover[0] = colour(game.currentPlayer()) == WHITE ? BLACK : WHITE;
+        }
+
+        private static byte colour(PieceColour piece) {
+            return piece == PieceColour.WHITE ? WHITE : piece == PieceColour.BLACK ? BLACK : EMPTY;
+        }
+
+        // Runs the iterations: select by UCT down to a node with an untried move, add a child for that move,
+        // play out a random game from it and back up the result
+        void search() {
+            for (int i = 0; i < iterations; i++) {
+                if (i % CLOCK_CHECK_INTERVAL == 0 && i > 0 && System.nanoTime() > deadline)
+                    break;
+                int node = 0, depth = 0;
+                while (!game.isOver()) {
+                    int child = expand(node);
+                    if (child != -1) {
+                        play(child);
+                        node = child;
+                        depth++;
+                        break;
+                    }
+                    // With a full tree, a node may have untried moves but no children, and the playout starts there
+                    if (firstChild[node] == -1)
+                        break;
+                    node = select(node);
+                    play(node);
+                    depth++;
+                }
+                byte winner = game.isOver() ? colour(game.winner()) : playout(colour(game.currentPlayer()));
+                for (int n = node; n != -1; n = parent[n]) {
+                    visits[n]++;
+                    if (winner == mover[n])
+                        wins[n] += 1;
+                    else if (winner == EMPTY)
+                        wins[n] += 0.5;
+                }
+                for (; depth > 0; depth--) {
+                    game.unmakeMove();
+                    board[move[node]] = EMPTY;
+                    node = parent[node];
+                }
+            }
+        }
+
+        // Returns the child with the highest UCT value, trying every child once first
+        private int select(int node) {
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = firstChild[node];
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                if (visits[child] == 0)
+                    return child;
+                double value = wins[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        // Makes the move leading to the node on the game and the board
+        private void play(int node) {
+            game.makeMove(move[node]);
+            board[move[node]] = mover[node];
+        }
+
+        // Adds a child to the node (whose position is on the board) for its next untried move in order, and returns it
+        // Returns -1 if every empty position of the node already has a child, or the tree is full
+        private int expand(int node) {
+            int next = untried[node];
+            while (next < order.length && board[order[next]] != EMPTY)
+                next++;
+            untried[node] = next;
+            if (next == order.length || nodeCount == MAX_NODES)
+                return -1;
+            if (nodeCount == parent.length)
+                grow((int) Math.min(MAX_NODES, Math.min(2L * nodeCount, (long) iterations + 1)));
+            int child = nodeCount++;
+            parent[child] = node;
+            firstChild[child] = -1;
+            nextSibling[child] = firstChild[node];
+            firstChild[node] = child;
+            untried[child] = 0;
+            move[child] = order[next];
+            mover[child] = mover[node] == WHITE ? BLACK : WHITE;
+            visits[child] = 0;
+            wins[child] = 0;
+            untried[node] = next + 1;
+            return child;
+        }
+
+        private void grow(int capacity) {
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            untried = Arrays.copyOf(untried, capacity);
+            move = Arrays.copyOf(move, capacity);
+            visits = Arrays.copyOf(visits, capacity);
+            mover = Arrays.copyOf(mover, capacity);
+            wins = Arrays.copyOf(wins, capacity);
+        }
+
+        // Plays a random game from the current position, in which toMove makes the first move, and returns the winner
+        // The empty positions are shuffled and filled in that order with alternating colours
+        // The winner is then found in one pass of a disjoint-set forest over the pieces in the order they were placed,
+        // stopping at the first piece which joins two opposite edges (the move that would have ended the game)
+        private byte playout(byte toMove) {
+            int count = 0;
+            for (int row = 0, position = 0; row < size; row++) {
+                for (int cell = topology.pad(row, 0); cell <= topology.pad(row, size - 1); cell++, position++) {
+                    playoutBoard[cell] = EMPTY;
+                    sets[cell] = cell;
+                    edges[cell] = topology.edges(cell);
+                    if (board[position] == EMPTY)
+                        empties[count++] = cell;
+                }
+            }
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = empties[i];
+                empties[i] = empties[j];
+                empties[j] = swap;
+            }
+
+            // The pieces already on the board cannot form a path, as the game is not over
+            for (int position = 0; position < board.length; position++)
+                if (board[position] != EMPTY)
+                    place(topology.pad(position), board[position]);
+
+            byte colour = toMove;
+            for (int i = 0; i < count; i++) {
+                if (place(empties[i], colour))
+                    return colour;
+                colour = colour == WHITE ? BLACK : WHITE;
+            }
+            return EMPTY;
+        }
+
+        // Places a piece at a padded cell of the playout board and joins it with its neighbours of the same colour
+        // A neighbour off the grid is a border cell, so no bounds are checked
+        // Returns true if its group now joins two opposite edges
+        private boolean place(int cell, byte colour) {
+            playoutBoard[cell] = colour;
+            for (int offset : offsets)
+                if (playoutBoard[cell + offset] == colour)
+                    union(cell, cell + offset);
+            int reached = edges[find(cell)];
+            return (reached & (TOP | BOTTOM)) == (TOP | BOTTOM) || (reached & (LEFT | RIGHT)) == (LEFT | RIGHT);
+        }
+
+        // Finds the root of a set, halving the path on the way
+        private int find(int x) {
+            while (sets[x] != x) {
+                sets[x] = sets[sets[x]];
+                x = sets[x];
+            }
+            return x;
+        }
+
+        private void union(int a, int b) {
+            int rootA = find(a), rootB = find(b);
+            if (rootA != rootB) {
+                sets[rootB] = rootA;
+                edges[rootA] |= edges[rootB];
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import game.*;
+
+// Orders the moves of a position so that alpha-beta pruning can cut off as much of the search as possible
+// Moves are tried in this order:
+//   1. the hash move (the best move found by an earlier search of the position)
+//   2. the two killer moves of the ply (recent moves which caused a cutoff in a sibling position)
+//   3. moves with the highest history score (moves which caused cutoffs anywhere in the search)
+//   4. moves next to a piece already on the grid
+// Remaining ties are broken by position, or randomly if the ordering was given a random number generator
+// Each search thread needs its own MoveOrdering, as the tables are not synchronised
+public class MoveOrdering {
+    // Packing of the sort key: bits 61-62 category, 32-60 history score, 31 adjacency,
+    // 22-30 random tie-break and 0-21 the index of the move in the list
+    private static final int CATEGORY_SHIFT = 61, HISTORY_SHIFT = 32, ADJACENT_SHIFT = 31, RANDOM_SHIFT = 22;
+    private static final long HISTORY_MAX = (1L << 29) - 1;
+    private static final int INDEX_MASK = (1 << 22) - 1;
+    private static final int HASH_MOVE = 3, FIRST_KILLER = 2, SECOND_KILLER = 1;
+
+    private int size;
+    private Topology topology;
+    private Random random;
+    private int[][] killers;
+    private long[][] history;
+
+    // Scratch arrays reused for every call of order()
+    // empty is laid out on the padded cells of the grid's Topology, with the border always empty,
+    // so that isAdjacent() reads the neighbours at fixed offsets without checking the bounds
+    private long[] keys = new long[0];
+    private int[] positions = new int[0];
+    private boolean[] empty;
+
+    // size is the side length of the grid; random breaks ties, or is null to break them by position
+    public MoveOrdering(int size, Random random) {
+        this.size = size;
+        this.random = random;
+        this.killers = new int[0][];
+        this.history = new long[2][size * size];
+        this.topology = Topology.forSize(size);
+        this.empty = new boolean[topology.getPaddedCells()];
+        for (int cell = 0; cell < empty.length; cell++)
+            empty[cell] = topology.row(cell) < 0;
+    }
+
+    // Returns the side length of the grid the ordering is for
+    public int getSize() {
+        return size;
+    }
+
+    // Prepares for a new search: clears the killer moves and halves the history scores,
+    // so that what was learnt about earlier positions counts for less than what is learnt now
+    public void newSearch(int maxPly) {
+        killers = new int[maxPly + 1][2];
+        for (int[] killer : killers)
+            Arrays.fill(killer, -1);
+        for (long[] scores : history)
+            for (int i = 0; i < scores.length; i++)
+                scores[i] >>= 1;
+    }
+
+    // Sorts the moves (positions row * size + col) into the order they should be searched
+    // hashMove is the position of the hash move, or -1 if there is none
+    // ply is the number of moves made since the root of the search, and player is the player to move
+    public void order(MoveList moves, int hashMove, int ply, PieceColour player) {
+        int count = moves.size();
+        if (keys.length < count) {
+            keys = new long[count];
+            positions = new int[count];
+        }
+
+        // Every position in the list is empty, so a neighbour not in the list holds a piece
+        for (int i = 0; i < count; i++) {
+            positions[i] = moves.get(i);
+            empty[topology.pad(positions[i])] = true;
+        }
+
+        int[] killer = ply < killers.length ? killers[ply] : null;
+        long[] scores = history[player == PieceColour.WHITE ? 0 : 1];
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            long category = 0;
+            if (position == hashMove)
+                category = HASH_MOVE;
+            else if (killer != null && position == killer[0])
+                category = FIRST_KILLER;
+            else if (killer != null && position == killer[1])
+                category = SECOND_KILLER;
+            long adjacent = isAdjacent(topology.pad(position)) ? 1 : 0;
+            long tieBreak = random == null ? 0 : random.nextInt(1 << (ADJACENT_SHIFT - RANDOM_SHIFT));
+            keys[i] = (category << CATEGORY_SHIFT) | (Math.min(scores[position], HISTORY_MAX) << HISTORY_SHIFT)
+                    | (adjacent << ADJACENT_SHIFT) | (tieBreak << RANDOM_SHIFT) | i;
+        }
+
+        for (int i = 0; i < count; i++)
+            empty[topology.pad(positions[i])] = false;
+
+        // Sorting ascending and reading backwards puts the highest key first
+        // Equal keys cannot occur, as every key contains the index of its move
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < count; i++)
+            moves.set(i, positions[(int) keys[count - 1 - i] & INDEX_MASK]);
+    }
+
+    // Records that the move at the given position caused a cutoff at the given ply, when searched to the given depth
+    public void cutoff(int position, int ply, int depth, PieceColour player) {
+        if (ply < killers.length && killers[ply][0] != position) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = position;
+        }
+        history[player == PieceColour.WHITE ? 0 : 1][position] += (long) depth * depth;
+    }
+
+    // Returns true if a neighbour of the padded cell holds a piece (a neighbour off the grid is a border cell, which is empty)
+    private boolean isAdjacent(int cell) {
+        for (int offset : topology.getNeighbourOffsets())
+            if (!empty[cell + offset])
+                return true;
+        return false;
+    }
+}
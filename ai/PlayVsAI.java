@@ -9,10 +9,15 @@ public class PlayVsAI {
         // Increasing the size of the board will make the AI slower
         Game game = new GameImpl(5);
 
-        // Decrease the depth to make the AI faster, but less powerful
-        // Increase the depth to make the AI slower, but more powerful
-        // The AI gets very slow very quickly as the depth increases!
-        AI ai = new Minimax(5, new MinPiecesHeuristic());
+        // The AI searches deeper and deeper until the time for its move runs out,
+        // so its speed stays the same whatever the size of the board
+        // The clock gives the AI 60 seconds for the whole game plus 1 second per move
+        // Decrease the time to make the AI faster, but less powerful
+        // Alternatively, use new Minimax(5, new MinPiecesHeuristic()) to always search 5 moves ahead,
+        // but note that a fixed depth gets very slow very quickly on larger boards!
+        AI ai = new Minimax(25, new MinPiecesHeuristic(), new GameClock(60_000, 1_000));
+        // Alternatively, use new MonteCarlo(20000) for an AI which plays random games instead of using a heuristic
+        // It stays strong on larger boards (9x9 and up), where Minimax can only look a few moves ahead
 
         // Change this to PieceColour.BLACK if you want to play as white
         PieceColour aiColour = PieceColour.WHITE;
@@ -0,0 +1,120 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.*;
+
+// Finds the same fewest pieces to win as the search of MinPiecesHeuristic, with relaxation sweeps over the distance field
+// Every row of the distance field is relaxed from the row before it, then along itself in both directions,
+// first from the top row down to the bottom and then back up, until a down and up sweep changes nothing
+// The step from one row to the next is the same operation on every column, which the JIT can compile to SIMD instructions
+// The sweeps visit every position several times, while the search stops as soon as it reaches the last row,
+// so MinPiecesHeuristic only uses them on grids large enough for them to be faster (see MinPiecesHeuristic.SWEEP_MIN_SIZE)
+final class SweepDistance {
+
+    // The weight of an opponent's piece, which no path may leave
+    // Large enough that a distance through one is never the smallest, and small enough that adding two never overflows
+    private static final int BLOCKED = 1 << 28;
+
+    // Scratch arrays reused by every call on the same thread, so that scoring a game allocates nothing
+    // Each row is its own array, so that relaxing one row from another reads and writes both at the same index
+    private static class Scratch {
+        int size = -1;
+        int[][] weights; // the cost of leaving each position, by row
+        int[][] transposed; // the same costs, by column
+        int[][] distance;
+
+        void ensureSize(int size) {
+            if (this.size == size)
+                return;
+            this.size = size;
+            weights = new int[size][size];
+            transposed = new int[size][size];
+            distance = new int[size][size];
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Returns the fewest pieces needed to get from the first row of weights to the last, with the same weights as MinPiecesHeuristic:
+    // a path costs 0 to start on our piece and 1 to start anywhere else, and leaving a position costs its weight
+    // (0 for ours, 1 for an empty position), while it may end on any position of the last row, including the opponent's
+    // Returns unreachable if no path reaches the last row
+    private static int sweep(int[][] weights, int[][] distance, int size, int unreachable) {
+        int[] first = distance[0];
+        for (int col = 0; col < size; col++)
+            first[col] = weights[0][col] == 0 ? 0 : 1;
+        for (int row = 1; row < size; row++)
+            Arrays.fill(distance[row], BLOCKED);
+        relaxAlong(first, weights[0], size);
+
+        // The sweeps have converged once a down and up sweep changes no distance
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = 1; row < size; row++) {
+                changed |= relaxFrom(distance[row], distance[row - 1], weights[row - 1], size);
+                changed |= relaxAlong(distance[row], weights[row], size);
+            }
+            for (int row = size - 2; row >= 0; row--) {
+                changed |= relaxFrom(distance[row], distance[row + 1], weights[row + 1], size);
+                changed |= relaxAlong(distance[row], weights[row], size);
+            }
+        }
+
+        int best = BLOCKED;
+        for (int col = 0; col < size; col++)
+            best = Math.min(best, distance[size - 1][col]);
+        return best >= BLOCKED ? unreachable : best;
+    }
+
+    // Relaxes every position of a row from the neighbouring position in another row, and returns true if any distance changed
+    // A plain loop over one index, so that it can be vectorised; the changes are OR-ed together rather than branched on
+    private static boolean relaxFrom(int[] row, int[] neighbour, int[] neighbourWeights, int size) {
+        int changed = 0;
+        for (int col = 0; col < size; col++) {
+            int relaxed = Math.min(row[col], neighbour[col] + neighbourWeights[col]);
+            changed |= relaxed ^ row[col];
+            row[col] = relaxed;
+        }
+        return changed != 0;
+    }
+
+    // Relaxes every position of a row from its left neighbour, then from its right neighbour, and returns true if any distance changed
+    // Within a row a shortest path only goes one way, so one pass in each direction is enough
+    private static boolean relaxAlong(int[] row, int[] weights, int size) {
+        int changed = 0;
+        for (int col = 1; col < size; col++) {
+            int relaxed = Math.min(row[col], row[col - 1] + weights[col - 1]);
+            changed |= relaxed ^ row[col];
+            row[col] = relaxed;
+        }
+        for (int col = size - 2; col >= 0; col--) {
+            int relaxed = Math.min(row[col], row[col + 1] + weights[col + 1]);
+            changed |= relaxed ^ row[col];
+            row[col] = relaxed;
+        }
+        return changed != 0;
+    }
+
+    // Returns the fewest pieces the player needs for a path from the top row to the bottom row
+    // or from the left column to the right column, whichever is smaller
+    static int minPieces(Grid grid, PieceColour player) {
+        int size = grid.getSize();
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureSize(size);
+        int[][] weights = scratch.weights, transposed = scratch.transposed;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                PieceColour piece = grid.getPiece(row, col);
+                int weight = piece == player ? 0 : piece == PieceColour.NONE ? 1 : BLOCKED;
+                weights[row][col] = weight;
+                transposed[col][row] = weight;
+            }
+        }
+        int unreachable = size * size;
+        int topToBottom = sweep(weights, scratch.distance, size, unreachable);
+        int leftToRight = sweep(transposed, scratch.distance, size, unreachable);
+        return Math.min(topToBottom, leftToRight);
+    }
+}
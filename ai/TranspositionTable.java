@@ -0,0 +1,105 @@
+package ai;
+
+import java.util.Arrays;
+
+// A fixed-size hash table of search results, keyed by the hash of a position
+// Used by Minimax to avoid searching a position again when it is reached through a different order of moves
+//
+// The table has a power-of-two number of entries, grouped into buckets of two:
+// the first entry of a bucket is only replaced by a search at least as deep (depth-preferred),
+// the second entry is replaced by anything that does not fit the first (always-replace)
+//
+// Every entry is two longs: the packed data, and the key XOR-ed with the data
+// An entry only matches when both longs agree, so a torn or half-written entry is never returned
+// This keeps the table safe to share between threads without any locks
+public class TranspositionTable {
+    // The kinds of score stored in an entry
+    // EXACT is the true minimax value, LOWER means the value is at least the score, UPPER means at most
+    public static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    // Returned by probe() when the position is not in the table
+    public static final long NONE = 0;
+
+    // Each entry uses two longs
+    private static final int ENTRY_BYTES = 16;
+
+    // Packing of the data long: bits 0-31 score, 32-39 depth, 40-41 bound, 42 set for a valid entry,
+    // 43-63 the best move plus one (so that no move is stored as 0)
+    private static final long VALID = 1L << 42;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    // Creates a table using at most the given number of bytes
+    // The number of entries is rounded down to a power of two, with at least one bucket
+    public TranspositionTable(long bytes) {
+        long entries = Math.max(2, bytes / ENTRY_BYTES);
+        entries = Math.min(Long.highestOneBit(entries), 1 << 30);
+        keys = new long[(int) entries];
+        data = new long[(int) entries];
+        bucketMask = (int) (entries / 2 - 1);
+    }
+
+    // Returns the number of entries in the table
+    public int capacity() {
+        return keys.length;
+    }
+
+    // Returns the entry stored for the given key, or NONE if there is none
+    // The fields of the entry are read with score(), depth(), bound() and move()
+    public long probe(long key) {
+        int slot = ((int) key & bucketMask) << 1;
+        long entry = data[slot];
+        if ((keys[slot] ^ entry) == key && entry != NONE)
+            return entry;
+        entry = data[slot + 1];
+        if ((keys[slot + 1] ^ entry) == key && entry != NONE)
+            return entry;
+        return NONE;
+    }
+
+    // Stores a search result for the given key
+    // depth is the number of moves searched below the position (0 to 255)
+    // move is the best move found (a position row * size + col), or -1 if there is none
+    public void store(long key, int depth, int bound, int score, int move) {
+        long entry = (score & 0xFFFFFFFFL) | ((long) Math.min(depth, 255) << 32) | ((long) bound << 40) | VALID
+                | ((long) (move + 1) << 43);
+        int slot = ((int) key & bucketMask) << 1;
+        long stored = data[slot];
+        // The depth-preferred entry is replaced if it is empty, holds the same position or was searched less deeply
+        if (stored == NONE || (keys[slot] ^ stored) == key || depth >= depth(stored)) {
+            data[slot] = entry;
+            keys[slot] = key ^ entry;
+        } else {
+            data[slot + 1] = entry;
+            keys[slot + 1] = key ^ entry;
+        }
+    }
+
+    // Removes every entry from the table
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    // Returns the score of an entry
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    // Returns the depth an entry was searched to
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    // Returns the bound of an entry (EXACT, LOWER or UPPER)
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 3;
+    }
+
+    // Returns the best move of an entry, or -1 if there is none
+    public static int move(long entry) {
+        return (int) (entry >>> 43) - 1;
+    }
+}
@@ -0,0 +1,54 @@
+package ai.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+
+// Compares the serial and the parallel search of Minimax at the same depth
+// For every test position, both searches must find the same score, and the speedup of the parallel search is printed
+// Usage: java ai.benchmarks.SearchBenchmark [size] [depth] [threads] [positions]
+public class SearchBenchmark {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int positions = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.println("Grid size " + size + ", depth " + depth + ", " + threads + " threads");
+        Random random = new Random(1);
+        long serialTotal = 0, parallelTotal = 0;
+        int mismatches = 0;
+        for (int p = 0; p < positions; p++) {
+            // A position after a few random moves, so that the searches do not all start from the empty grid
+            Game game = new GameImpl(size);
+            for (int i = 0; i < size && !game.isOver(); i++) {
+                var moves = new ArrayList<>(game.getMoves());
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            if (game.isOver())
+                continue;
+
+            // Every search gets a new Minimax, so that neither can use what the other stored in its table
+            Minimax serial = new Minimax(depth, new MinPiecesHeuristic());
+            serial.setSeed(p);
+            serial.getCurrentPlayerMove(game);
+            Minimax parallel = new Minimax(depth, new MinPiecesHeuristic());
+            parallel.setSeed(p);
+            parallel.setThreads(threads);
+            parallel.getCurrentPlayerMove(game);
+            parallel.close();
+
+            serialTotal += serial.getLastSearchNanos();
+            parallelTotal += parallel.getLastSearchNanos();
+            if (serial.getLastScore() != parallel.getLastScore())
+                mismatches++;
+            System.out.printf("Position %d: score %d / %d, nodes %d / %d, time %.1f / %.1f ms%n", p,
+                    serial.getLastScore(), parallel.getLastScore(), serial.getNodeCount(), parallel.getNodeCount(),
+                    serial.getLastSearchNanos() / 1e6, parallel.getLastSearchNanos() / 1e6);
+        }
+        System.out.printf("Speedup: %.2fx%n", (double) serialTotal / Math.max(1, parallelTotal));
+        System.out.println(mismatches == 0 ? "All scores matched" : mismatches + " scores did not match!");
+    }
+}
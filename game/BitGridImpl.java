@@ -0,0 +1,129 @@
+package game;
+
+// Manages the grid by implementing all the methods in the grid interface
+// Pieces are stored as two packed bitsets (one per colour) instead of an array of PieceColour references
+// Cell (row, col) is bit (row * size + col), held in word (index >>> 6) at bit position (index & 63)
+public class BitGridImpl implements Grid, RowBits {
+  private int size;
+  private long[] white;
+  private long[] black;
+
+  // A constructor consistent with game.tests.GridTest
+  public BitGridImpl(int size) {
+    this.size = size;
+
+    // Allocates enough 64-bit words to hold one bit per position
+    // All bits start cleared, which represents an empty grid
+    int words = (size * size + 63) >>> 6;
+    white = new long[words];
+    black = new long[words];
+  }
+
+  // Returns the size of the grid (i.e. the length of one side of the square)
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  // Returns the colour at the given row and column
+  @Override
+  public PieceColour getPiece(int row, int col) {
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+
+    int index = row * size + col;
+    long bit = 1L << index;
+    if ((white[index >>> 6] & bit) != 0)
+      return PieceColour.WHITE;
+    if ((black[index >>> 6] & bit) != 0)
+      return PieceColour.BLACK;
+
+    // PieceColour.NONE is returned if neither bitset holds the position
+    return PieceColour.NONE;
+  }
+
+  // Sets the colour at the given row and column
+  @Override
+  public void setPiece(int row, int col, PieceColour piece) {
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+
+    // Throws IllegalArgumentException if the piece is not a valid colour
+    // PieceColour.NONE is accepted for clearing a position, the same as in GridImpl
+    if (piece != PieceColour.NONE && piece != PieceColour.WHITE && piece != PieceColour.BLACK)
+      throw new IllegalArgumentException("The inputted colour is invalid.");
+
+    // Clears the position in both bitsets, then sets the bit of the given colour (if any)
+    // Note that Java only uses the low 6 bits of the shift distance, so (1L << index) selects the bit within its word
+    int index = row * size + col;
+    int word = index >>> 6;
+    long bit = 1L << index;
+    white[word] &= ~bit;
+    black[word] &= ~bit;
+    if (piece == PieceColour.WHITE)
+      white[word] |= bit;
+    else if (piece == PieceColour.BLACK)
+      black[word] |= bit;
+  }
+
+  // Copies a row of one colour into words of bits (see RowBits), a word at a time
+  @Override
+  public void copyRow(PieceColour piece, int row, long[] bits, int offset) {
+    for (int col = 0; col < size; col += 64) {
+      // The 64 (or fewer, in the last word) positions starting at (row, col) can span two words of the bitsets
+      int index = row * size + col;
+      int word = index >>> 6, shift = index & 63;
+      long whiteBits = white[word] >>> shift, blackBits = black[word] >>> shift;
+      if (shift != 0 && word + 1 < white.length) {
+        whiteBits |= white[word + 1] << (64 - shift);
+        blackBits |= black[word + 1] << (64 - shift);
+      }
+      long value = piece == PieceColour.WHITE ? whiteBits : piece == PieceColour.BLACK ? blackBits : ~(whiteBits | blackBits);
+      int length = Math.min(64, size - col);
+      bits[offset + (col >>> 6)] = length == 64 ? value : value & ((1L << length) - 1);
+    }
+  }
+
+  // Returns true if no position holds a piece, checking the bitsets a word at a time (see RowBits)
+  @Override
+  public boolean isEmpty() {
+    for (int word = 0; word < white.length; word++)
+      if ((white[word] | black[word]) != 0)
+        return false;
+    return true;
+  }
+
+  // Creates and returns a copy of this grid
+  @Override
+  public Grid copy() {
+    // The grid returned is a deep copy (i.e. a new object "copy" with its own bitsets).
+    // So that there is no way to modify this grid by modifying the "copy" returned.
+    BitGridImpl copy = new BitGridImpl(size);
+    System.arraycopy(white, 0, copy.white, 0, white.length);
+    System.arraycopy(black, 0, copy.black, 0, black.length);
+    return copy;
+  }
+
+  // Returns the string representation of a Grid / BitGridImpl object in the same format as GridImpl
+  @Override
+  public String toString() {
+    StringBuilder output = new StringBuilder(size * (size + 1));
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        int index = i * size + j;
+        long bit = 1L << index;
+        if ((white[index >>> 6] & bit) != 0)
+          output.append('W');
+        else if ((black[index >>> 6] & bit) != 0)
+          output.append('B');
+        else
+          output.append('.');
+      }
+      // Append a newline character after finishing the loop for a row
+      output.append('\n');
+    }
+    return output.toString();
+  }
+}
@@ -4,23 +4,190 @@ package game;
 import java.util.*;
 
 // Manages the game by implementing all the methods in the game interface
-public class GameImpl implements Game {
+// Also implements SearchGame, so that moves can be undone during a search
+// Apart from the grid, the memory used grows with the number of moves made rather than with the size of the grid,
+// so a game on a very large grid (e.g. an OffHeapGrid) takes little more of the heap than the grid itself
+public class GameImpl implements SearchGame {
   private int size;
   private Grid grid;
+  // A read-only view of grid, created once and handed out by getGridView()
+  private Grid gridView;
   private PieceColour currentPlayer;
 
+  // A disjoint-set structure over the pieces on the grid, updated on every move
+  // Every piece is numbered by the move which placed it (0 for the first move), so the structure only grows with the moves,
+  // and as the players take turns and white moves first, the even numbers are white's pieces and the odd ones black's
+  // Every set carries the edges of the grid its pieces touch
+  // Edge flags are kept per set rather than as shared virtual edge nodes,
+  // so that a corner piece touching two edges cannot join the top edge to the left edge for every other group
+  private static final int TOP = 1, BOTTOM = 2, LEFT = 4, RIGHT = 8;
+  private UnionFind sets;
+
+  // The number of the piece at every cell of the padded board of the grid's Topology, plus one (0 for no piece),
+  // so that connect() finds the neighbours of a piece by fixed offsets, with the border standing in for bounds checks
+  // The cells are held in pages of PAGE cells, and a page is only allocated when a piece is first placed in it
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE = 1 << PAGE_BITS;
+  private Topology topology;
+  private int[][] pieces;
+
+  // True once the colour has a path from the top row to the bottom row or from the left column to the right column
+  private boolean whitePath;
+  private boolean blackPath;
+
+  // The status of the game, updated after every move so that isOver(), winner() and currentPlayer() only read fields
+  private enum Status { ONGOING, WHITE_WON, BLACK_WON, DRAW }
+  private Status status;
+
+  // The number of unoccupied positions, so that a draw can be detected without calling getMoves()
+  private int emptyCount;
+
+  // The moves made so far, for unmakeMove()
+  // For every move: its position (row * size + col), the disjoint-set mark before the move,
+  // and which colours had a winning path before the move (bit 0 for white, bit 1 for black)
+  // The arrays grow as moves are made
+  private int[] movePositions;
+  private int[] moveMarks;
+  private byte[] movePaths;
+  private int moveCount;
+
+  // The Zobrist hash of the position (the pieces on the grid and the player to move), updated on every move
+  private Zobrist zobrist;
+  private long hash;
+
+  // The Zobrist hashes of the 8 symmetric images of the position (see Symmetry)
+  // The smallest of them is the canonical hash, which is the same for all symmetric positions
+  // Most searches never ask for it, so both stay null until the first getCanonicalHash() or getCanonicalSymmetry(),
+  // which computes the hashes from the grid; from then on they are updated on every move
+  private Symmetry symmetry;
+  private long[] symmetricHashes;
+
   // A constructor that takes a single parameter "size" defining the side length of the game grid
   public GameImpl (int size) {
-    // Throws IllegalArgumentException if the grid size is less than 1
+    // Throws IllegalArgumentException if the grid size is less than 1 or greater than Topology.MAX_SIZE
+    // Positions are numbered by an int (row * size + col), so no game can have a larger grid
     if (size < 1)
       throw new IllegalArgumentException("The inputted size must be greater than zero.");
+    if (size > Topology.MAX_SIZE)
+      throw new IllegalArgumentException("The inputted size must be at most " + Topology.MAX_SIZE + ".");
     this.size = size;
     
     // Creates an empty grid for starting a game
     grid = new GridImpl(size);
+    gridView = new ReadOnlyGrid(grid);
     
     // White player always starts first
     currentPlayer = PieceColour.WHITE;
+
+    initSets();
+  }
+
+  // A constructor that lets the caller choose the Grid implementation (e.g. GridImpl or BitGridImpl)
+  // The side length of the game grid is taken from the given grid, which must be empty
+  public GameImpl(Grid grid) {
+    // Throws IllegalArgumentException if the grid size is less than 1 or greater than Topology.MAX_SIZE,
+    // or the grid already has pieces on it
+    if (grid.getSize() < 1)
+      throw new IllegalArgumentException("The inputted size must be greater than zero.");
+    if (grid.getSize() > Topology.MAX_SIZE)
+      throw new IllegalArgumentException("The inputted size must be at most " + Topology.MAX_SIZE + ".");
+    if (!isEmpty(grid))
+      throw new IllegalArgumentException("The inputted grid must be empty.");
+    this.size = grid.getSize();
+    this.grid = grid;
+    gridView = new ReadOnlyGrid(grid);
+
+    // White player always starts first
+    currentPlayer = PieceColour.WHITE;
+
+    initSets();
+  }
+
+  // Returns true if no position of the grid holds a piece
+  // Grids with their own bulk reads (see RowBits) check their storage, e.g. only the allocated tiles of a SparseGridImpl,
+  // and any other grid is read one position at a time
+  private static boolean isEmpty(Grid grid) {
+    Grid inner = grid instanceof ReadOnlyGrid ? ((ReadOnlyGrid) grid).getGrid() : grid;
+    if (inner instanceof RowBits)
+      return ((RowBits) inner).isEmpty();
+    for (int row = 0; row < grid.getSize(); row++)
+      for (int col = 0; col < grid.getSize(); col++)
+        if (grid.getPiece(row, col) != PieceColour.NONE)
+          return false;
+    return true;
+  }
+
+  // For copy(), which sets every field itself
+  private GameImpl(int size, Grid grid) {
+    this.size = size;
+    this.grid = grid;
+    gridView = new ReadOnlyGrid(grid);
+  }
+
+  // Creates the disjoint-set structure and the status for an empty grid
+  private void initSets() {
+    sets = new UnionFind(0);
+    topology = Topology.forSize(size);
+    pieces = new int[(topology.getPaddedCells() + PAGE - 1) >>> PAGE_BITS][];
+    emptyCount = size * size;
+    status = Status.ONGOING;
+    int moves = Math.min(size * size, 64);
+    movePositions = new int[moves];
+    moveMarks = new int[moves];
+    movePaths = new byte[moves];
+    zobrist = Zobrist.forSize(size);
+    hash = 0;
+  }
+
+  // Recomputes the status from the winning paths and the number of unoccupied positions
+  // White is checked first, the same order as winner() has always used
+  private void updateStatus() {
+    if (whitePath)
+      status = Status.WHITE_WON;
+    else if (blackPath)
+      status = Status.BLACK_WON;
+    else if (emptyCount == 0)
+      status = Status.DRAW;
+    else
+      status = Status.ONGOING;
+  }
+
+  // Returns the number of the piece at the given padded cell plus one, or 0 if there is none (or the cell is on the border)
+  private int pieceAt(int cell) {
+    int[] page = pieces[cell >>> PAGE_BITS];
+    return page == null ? 0 : page[cell & (PAGE - 1)];
+  }
+
+  // Sets the number of the piece at the given padded cell plus one, allocating its page if needed
+  private void setPieceAt(int cell, int value) {
+    int[] page = pieces[cell >>> PAGE_BITS];
+    if (page == null)
+      page = pieces[cell >>> PAGE_BITS] = new int[Math.min(PAGE, topology.getPaddedCells())];
+    page[cell & (PAGE - 1)] = value;
+  }
+
+  // Adds the piece just placed at the given padded cell to the disjoint-set structure, joins it with its neighbours
+  // of the same colour and records a winning path if the merged group now touches two opposite edges
+  // The edges of the cell and its neighbours come from the Topology, and a neighbour off the grid is a border cell,
+  // which never has a piece
+  private void connect(int cell, PieceColour colour) {
+    int piece = sets.add();
+    setPieceAt(cell, piece + 1);
+    // The edge masks of Topology use the same bits as TOP, BOTTOM, LEFT and RIGHT
+    int edges = sets.addFlags(piece, topology.edges(cell));
+    for (int offset : topology.getNeighbourOffsets()) {
+      // Pieces of the same colour were placed an even number of moves apart
+      int neighbour = pieceAt(cell + offset) - 1;
+      if (neighbour >= 0 && ((neighbour ^ piece) & 1) == 0)
+        edges = sets.union(piece, neighbour);
+    }
+
+    if ((edges & (TOP | BOTTOM)) == (TOP | BOTTOM) || (edges & (LEFT | RIGHT)) == (LEFT | RIGHT)) {
+      if (colour == PieceColour.WHITE)
+        whitePath = true;
+      else
+        blackPath = true;
+    }
   }
 
   // // Returns true if the game is over (i.e. when there is a winner or there are no more valid moves (a draw))
@@ -28,19 +195,19 @@ public class GameImpl implements Game {
   public boolean isOver() {
     // Returns true if a path (in either WHITE or BLACK) from the top row to the bottom row or from the left column to the right column is found
     // or the Collection "validMoves" returned by getMoves() is empty (i.e. all positions have been occupied and there are no more valid moves)
-    return PathFinder.topToBottom(grid, PieceColour.WHITE) || PathFinder.leftToRight(grid, PieceColour.WHITE) || PathFinder.topToBottom(grid, PieceColour.BLACK) || PathFinder.leftToRight(grid, PieceColour.BLACK) || getMoves().isEmpty();
+    // The paths are tracked incrementally by the disjoint-set structures, giving the same result as the PathFinder class
+    // and "emptyCount" stands in for the size of getMoves(), so this only reads the cached status
+    return status != Status.ONGOING;
   }
 
   // Returns the colour of the winner
   @Override
   public PieceColour winner() {
-    // Determines the winner by using the methods in the PathFinder class
-    if (isOver()) {
-      if (PathFinder.topToBottom(grid, PieceColour.WHITE) || PathFinder.leftToRight(grid, PieceColour.WHITE)) 
-        return PieceColour.WHITE;
-      if (PathFinder.topToBottom(grid, PieceColour.BLACK) || PathFinder.leftToRight(grid, PieceColour.BLACK))
-        return PieceColour.BLACK;
-    }
+    // Determines the winner from the cached status, which is based on the same paths as the PathFinder class
+    if (status == Status.WHITE_WON)
+      return PieceColour.WHITE;
+    if (status == Status.BLACK_WON)
+      return PieceColour.BLACK;
 
     // Returns PieceColour.NONE if the game is not over or is a draw
     return PieceColour.NONE;
@@ -50,7 +217,7 @@ public class GameImpl implements Game {
   @Override
   public PieceColour currentPlayer() {
     // If the game is over, the output of this method does not matter (i.e. undefined).
-    if (isOver())
+    if (status != Status.ONGOING)
       return PieceColour.NONE;
 
     return currentPlayer;
@@ -61,13 +228,14 @@ public class GameImpl implements Game {
   @Override
   public Collection<Move> getMoves() {
     // Creates an ArrayList "validMoves" for storing all valid moves currently available in the grid
-    Collection<Move> validMoves = new ArrayList<>();
+    Collection<Move> validMoves = new ArrayList<>(emptyCount);
 
-    // Adds a Move / MoveImpl object to "validMoves" if the relevant position is unoccupied (i.e. PieceColour = NONE)
+    // Adds the shared Move / MoveImpl object of a position to "validMoves" if the position is unoccupied (i.e. PieceColour = NONE)
+    // MoveImpl.of() returns the same object for the same position every time, so no moves are created
     for (int row = 0; row < size; row++) {
       for (int col = 0; col < size; col++) {
         if (grid.getPiece(row, col) == PieceColour.NONE)
-          validMoves.add(new MoveImpl(row, col));
+          validMoves.add(MoveImpl.of(size, row, col));
       }
     }
 
@@ -75,25 +243,135 @@ public class GameImpl implements Game {
     return validMoves;
   }
 
+  // Fills the list with the positions (row * size + col) of all valid moves, without creating any objects
+  @Override
+  public void getMoves(MoveList moves) {
+    moves.clear();
+    // Adds a position to the list if it is unoccupied (i.e. PieceColour = NONE)
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        if (grid.getPiece(row, col) == PieceColour.NONE)
+          moves.add(row * size + col);
+      }
+    }
+  }
+
   // Executes a move for the current player and alternates turn
   @Override
   public void makeMove(Move move) {
+    // Throws an IllegalArgumentException if the move is invalid
+    // An invalid move is one where the position is already occupied or out of bounds.
+    if (move.getRow() < 0 || move.getRow() >= size || move.getCol() < 0 || move.getCol() >= size)
+      throw new IllegalArgumentException("The move is invalid as the position is already occupied or out of bounds.");
+    makeMove(move.getRow() * size + move.getCol());
+  }
+
+  // Executes the move at the given position (row * size + col) for the current player and alternates turn
+  @Override
+  public void makeMove(int position) {
     // If the game is over, the output of this method does not matter (i.e. undefined).
-    if (isOver())
+    if (status != Status.ONGOING)
       System.out.println("Game Over");
 
     // Throws an IllegalArgumentException if the move is invalid
     // An invalid move is one where the position is already occupied or out of bounds.
-    if (grid.getPiece(move.getRow(), move.getCol()) != PieceColour.NONE || move.getRow() < 0 || move.getRow() >= size || move.getCol() < 0 || move.getCol() >= size)
+    if (position < 0 || position >= size * size || pieceAt(topology.pad(position)) != 0)
       throw new IllegalArgumentException("The move is invalid as the position is already occupied or out of bounds.");
-    
+    int row = position / size, col = position % size;
+
+    // Records the move so that it can be undone by unmakeMove()
+    // Every move fills an empty position, so there can never be more than size * size of them
+    if (moveCount == movePositions.length) {
+      int moves = (int) Math.min((long) size * size, 2L * moveCount);
+      movePositions = Arrays.copyOf(movePositions, moves);
+      moveMarks = Arrays.copyOf(moveMarks, moves);
+      movePaths = Arrays.copyOf(movePaths, moves);
+    }
+    movePositions[moveCount] = position;
+    moveMarks[moveCount] = sets.mark();
+    movePaths[moveCount] = (byte) ((whitePath ? 1 : 0) | (blackPath ? 2 : 0));
+    moveCount++;
+
     // Updates the grid to reflect the move
-    grid.setPiece(move.getRow(), move.getCol(), currentPlayer);
+    grid.setPiece(row, col, currentPlayer);
+    connect(topology.pad(position), currentPlayer);
+    hash ^= zobrist.piece(currentPlayer, position) ^ zobrist.side();
+    if (symmetricHashes != null)
+      updateSymmetricHashes(position, currentPlayer);
+    emptyCount--;
+    updateStatus();
 
     // Changes the current player to the other colour after the move is made
     currentPlayer = (currentPlayer == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE);
   }
 
+  // Undoes the last move and gives the turn back to the player who made it
+  @Override
+  public void unmakeMove() {
+    // Throws an IllegalStateException if there is no move to undo
+    if (moveCount == 0)
+      throw new IllegalStateException("There is no move to undo.");
+    moveCount--;
+
+    // The player who made the last move is the one before the current player
+    currentPlayer = (currentPlayer == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE);
+
+    // Clears the position and rolls the disjoint-set structure back to its state before the move, which also removes the piece
+    int position = movePositions[moveCount];
+    grid.setPiece(position / size, position % size, PieceColour.NONE);
+    setPieceAt(topology.pad(position), 0);
+    sets.rollback(moveMarks[moveCount]);
+    hash ^= zobrist.piece(currentPlayer, position) ^ zobrist.side();
+    if (symmetricHashes != null)
+      updateSymmetricHashes(position, currentPlayer);
+    whitePath = (movePaths[moveCount] & 1) != 0;
+    blackPath = (movePaths[moveCount] & 2) != 0;
+    emptyCount++;
+    updateStatus();
+  }
+
+  // Places or removes a piece of the given colour in every symmetric image of the position, and changes the player to move
+  private void updateSymmetricHashes(int position, PieceColour colour) {
+    for (int s = 0; s < Symmetry.COUNT; s++)
+      symmetricHashes[s] ^= zobrist.piece(colour, symmetry.map(s, position)) ^ zobrist.side();
+  }
+
+  // Computes the hashes of the 8 symmetric images from the grid, the first time they are needed
+  private void initSymmetricHashes() {
+    symmetry = Symmetry.forSize(size);
+    symmetricHashes = new long[Symmetry.COUNT];
+    for (int s = 0; s < Symmetry.COUNT; s++)
+      symmetricHashes[s] = symmetry.hash(gridView, currentPlayer, s);
+  }
+
+  // Returns the canonical hash of the position: the smallest hash of its 8 symmetric images
+  // Symmetric positions with the same player to move have the same canonical hash
+  @Override
+  public long getCanonicalHash() {
+    int canonical = getCanonicalSymmetry();
+    return symmetricHashes[canonical];
+  }
+
+  // Returns the symmetry which turns this position into the image with the canonical hash
+  @Override
+  public int getCanonicalSymmetry() {
+    if (symmetricHashes == null)
+      initSymmetricHashes();
+    int best = Symmetry.IDENTITY;
+    for (int s = 1; s < Symmetry.COUNT; s++)
+      if (symmetricHashes[s] < symmetricHashes[best])
+        best = s;
+    return best;
+  }
+
+  // Returns the Zobrist hash of the position
+  // Games of the same size with the same pieces and the same player to move have the same hash,
+  // whatever order the moves were made in
+  @Override
+  public long getHash() {
+    return hash;
+  }
+
   // Returns a copy of the grid
   @Override
   public Grid getGrid() {
@@ -103,18 +381,67 @@ public class GameImpl implements Game {
     return grid.copy();
   }
 
+  // Returns a read-only view of the grid
+  // The view reads this.grid directly, so it costs nothing to obtain and shows every later move
+  @Override
+  public Grid getGridView() {
+    return gridView;
+  }
+
   // Returns a copy of the game
   @Override
   public Game copy() {
     // The game returned is a deep copy (i.e. a new object).
     // So that there is no way to modify the internal state of the game by modifying the game copy returned.
-    // Creates a game copy and set its size as this.size
-    GameImpl gameCopy = new GameImpl(size);
+    // Creates a game copy with a copy of the grid and set its size as this.size
+    GameImpl gameCopy = new GameImpl(size, getGrid());
 
-    // Sets the values of the other two fields of the game copy
-    gameCopy.grid = getGrid();
+    // Sets the values of the other fields of the game copy
+    // Only the pages which have pieces are copied
     gameCopy.currentPlayer = currentPlayer;
+    gameCopy.sets = sets.copy();
+    gameCopy.topology = topology;
+    gameCopy.pieces = new int[pieces.length][];
+    for (int i = 0; i < pieces.length; i++)
+      if (pieces[i] != null)
+        gameCopy.pieces[i] = pieces[i].clone();
+    gameCopy.whitePath = whitePath;
+    gameCopy.blackPath = blackPath;
+    gameCopy.status = status;
+    gameCopy.emptyCount = emptyCount;
+    gameCopy.movePositions = movePositions.clone();
+    gameCopy.moveMarks = moveMarks.clone();
+    gameCopy.movePaths = movePaths.clone();
+    gameCopy.moveCount = moveCount;
+    gameCopy.zobrist = zobrist;
+    gameCopy.hash = hash;
+    gameCopy.symmetry = symmetry;
+    gameCopy.symmetricHashes = symmetricHashes == null ? null : symmetricHashes.clone();
 
     return gameCopy;
   }
+
+  // Two games are equal if they have the same size, the same pieces and the same player to move
+  // The hashes are compared first, so the grids are only compared cell by cell when the hashes match
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof GameImpl))
+      return false;
+    GameImpl other = (GameImpl) obj;
+    if (size != other.size || hash != other.hash || currentPlayer != other.currentPlayer)
+      return false;
+    for (int row = 0; row < size; row++)
+      for (int col = 0; col < size; col++)
+        if (grid.getPiece(row, col) != other.grid.getPiece(row, col))
+          return false;
+    return true;
+  }
+
+  // Consistent with equals(), as equal games always have the same Zobrist hash
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash);
+  }
 }
\ No newline at end of file
@@ -1,8 +1,15 @@
 package game;
 
 // Manages the moves by implementing all the methods in the move interface
+// Moves are immutable and compared by value, so they can be used as keys of maps and sets
+// MoveImpl.of() returns shared instances from a table for each grid size, so listing moves creates no new objects
+// Only grids up to SizeCache.MAX_SMALL_SIZE have a table, as a table of a large grid would hold millions of moves;
+// on larger grids MoveImpl.of() creates a new move each time
 public class MoveImpl implements Move {
-  private int row, col;
+  // The shared moves of each small grid size, indexed by position (row * size + col)
+  private static final SizeCache<MoveImpl[]> TABLES = new SizeCache<>(MoveImpl::table);
+
+  private final int row, col;
   
   // A constructor consistent with game.tests.MoveTest
   public MoveImpl(int row, int col) {
@@ -10,6 +17,34 @@ public class MoveImpl implements Move {
     this.col = col;
   }
 
+  // Returns the move at the given row and column of a grid of the given size, shared if the grid is small
+  // Throws IllegalArgumentException if the row or column is out of bounds
+  public static MoveImpl of(int size, int row, int col) {
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+    if (size > SizeCache.MAX_SMALL_SIZE)
+      return new MoveImpl(row, col);
+    return TABLES.get(size)[row * size + col];
+  }
+
+  // Returns the move at the given position (row * size + col) of a grid of the given size, shared if the grid is small
+  // Throws IllegalArgumentException if the position is out of bounds
+  public static MoveImpl of(int size, int position) {
+    if (size < 1 || position < 0 || position >= (long) size * size)
+      throw new IllegalArgumentException("The inputted position is out of bounds.");
+    if (size > SizeCache.MAX_SMALL_SIZE)
+      return new MoveImpl(position / size, position % size);
+    return TABLES.get(size)[position];
+  }
+
+  // Creates the moves of a grid of the given size, for the cache
+  private static MoveImpl[] table(int size) {
+    MoveImpl[] moves = new MoveImpl[size * size];
+    for (int i = 0; i < moves.length; i++)
+      moves[i] = new MoveImpl(i / size, i % size);
+    return moves;
+  }
+
   // Returns the row of the move (zero-indexed)
   @Override
   public int getRow() {
@@ -22,10 +57,29 @@ public class MoveImpl implements Move {
     return col;
   }
 
+  // Two moves are equal if they have the same row and column, whether or not they are the same instance
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof MoveImpl))
+      return false;
+    MoveImpl other = (MoveImpl) obj;
+    return row == other.row && col == other.col;
+  }
+
+  // Consistent with equals()
+  // Rows and columns are below Topology.MAX_SIZE, which fits in 16 bits, so different moves of one game never collide
+  // (31 * row + col collided as soon as a column reached 31, e.g. (0, 31) and (1, 0))
+  @Override
+  public int hashCode() {
+    return (row << 16) ^ col;
+  }
+
   // Returns the string representation of a Move / MoveImpl object in specified format
   // Override the default behaviour of the toString() method inherited from the Object class
   @Override
   public String toString() {
     return "(" + row + "," + col + ")";
   }
-}
\ No newline at end of file
+}
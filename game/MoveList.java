@@ -0,0 +1,118 @@
+package game;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+// A list of moves stored as positions (row * size + col) in an int array, so that listing moves creates no Move objects
+// A search can keep one list per ply and refill it with SearchGame.getMoves(MoveList) at every position
+// The list grows as needed, and clear() keeps its array for the next time it is filled
+public class MoveList {
+  private int[] positions;
+  private int count;
+
+  // Creates an empty list with room for 16 moves
+  public MoveList() {
+    this(16);
+  }
+
+  // Creates an empty list with room for the given number of moves
+  public MoveList(int capacity) {
+    // Throws IllegalArgumentException if the capacity is negative
+    if (capacity < 0)
+      throw new IllegalArgumentException("The inputted capacity must not be negative.");
+    positions = new int[capacity];
+  }
+
+  // Returns the number of moves in the list
+  public int size() {
+    return count;
+  }
+
+  // Returns true if the list has no moves
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  // Removes every move from the list
+  public void clear() {
+    count = 0;
+  }
+
+  // Adds the move at the given position to the end of the list
+  public void add(int position) {
+    if (count == positions.length)
+      positions = Arrays.copyOf(positions, Math.max(16, count * 2));
+    positions[count++] = position;
+  }
+
+  // Returns the position of the move at the given index
+  public int get(int index) {
+    // Throws IllegalArgumentException if the index is out of bounds
+    if (index < 0 || index >= count)
+      throw new IllegalArgumentException("The inputted index is out of bounds.");
+    return positions[index];
+  }
+
+  // Replaces the position of the move at the given index, e.g. to reorder the list
+  public void set(int index, int position) {
+    // Throws IllegalArgumentException if the index is out of bounds
+    if (index < 0 || index >= count)
+      throw new IllegalArgumentException("The inputted index is out of bounds.");
+    positions[index] = position;
+  }
+
+  // Removes the moves from the given index to the end of the list
+  public void truncate(int size) {
+    // Throws IllegalArgumentException if the size is negative or larger than the list
+    if (size < 0 || size > count)
+      throw new IllegalArgumentException("The inputted size is out of bounds.");
+    count = size;
+  }
+
+  // Returns a copy of the positions in the list
+  public int[] toArray() {
+    return Arrays.copyOf(positions, count);
+  }
+
+  // Returns an iterator over the positions, which does not box them as long as nextInt() is used
+  // The list must not be changed while it is being iterated
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next >= count)
+          throw new NoSuchElementException();
+        return positions[next++];
+      }
+    };
+  }
+
+  // Returns a spliterator over the positions, which can be split to share the moves among several threads
+  // The list must not be changed while the spliterator is in use
+  public Spliterator.OfInt spliterator() {
+    return Spliterators.spliterator(positions, 0, count, Spliterator.ORDERED | Spliterator.DISTINCT);
+  }
+
+  // Returns a stream of the positions; stream().parallel() searches them on several threads
+  public IntStream stream() {
+    return StreamSupport.intStream(spliterator(), false);
+  }
+
+  // Returns the string representation of the list, e.g. [0, 5, 7]
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+}
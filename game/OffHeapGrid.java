@@ -0,0 +1,212 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Manages the grid by implementing all the methods in the grid interface
+// Pieces are stored outside the Java heap, 2 bits per position, so a grid with billions of positions
+// does not need a heap of the same size (and is not copied around by the garbage collector)
+// Position (row, col) is cell (row * size + col), held in byte (cell >>> 2) at bits (cell & 3) * 2 and up:
+// 0 for an empty position, 1 for white and 2 for black
+// The bytes are split into chunks of at most 1GB, as a single ByteBuffer is indexed by an int
+// The memory is either a direct buffer (new OffHeapGrid(size)) or a file mapped into memory (OffHeapGrid.mapped())
+// After close() the grid must not be used, and every method other than close() throws an IllegalStateException
+// A game can only be played on a grid of up to Topology.MAX_SIZE (46338) on a side, about 2.1 billion positions,
+// as games number the positions by an int; a larger grid can still be used on its own or with PathFinder
+public class OffHeapGrid implements Grid, RowBits, AutoCloseable {
+  private static final int NONE = 0, WHITE = 1, BLACK = 2;
+
+  // Each chunk holds 2^30 bytes, i.e. 2^32 positions
+  private static final int CHUNK_BITS = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+  private int size;
+  private ByteBuffer[] chunks;
+
+  // A constructor consistent with game.tests.GridTest
+  // The grid is held in direct buffers, which start zeroed, i.e. empty
+  public OffHeapGrid(int size) {
+    // Throws IllegalArgumentException if the grid size is negative
+    if (size < 0)
+      throw new IllegalArgumentException("The inputted size must not be negative.");
+    this.size = size;
+    long bytes = byteCount(size);
+    chunks = new ByteBuffer[chunkCount(bytes)];
+    for (int i = 0; i < chunks.length; i++)
+      chunks[i] = ByteBuffer.allocateDirect(chunkLength(bytes, i));
+  }
+
+  private OffHeapGrid(int size, ByteBuffer[] chunks) {
+    this.size = size;
+    this.chunks = chunks;
+  }
+
+  // Returns a grid held in the given file, which is created if it does not exist
+  // A file written by an earlier grid of the same size is read back with its pieces; a new file starts empty
+  // Changes are written back to the file by the operating system, or straight away by force()
+  public static OffHeapGrid mapped(Path file, int size) throws IOException {
+    // Throws IllegalArgumentException if the grid size is negative
+    if (size < 0)
+      throw new IllegalArgumentException("The inputted size must not be negative.");
+    long bytes = byteCount(size);
+    ByteBuffer[] chunks = new ByteBuffer[chunkCount(bytes)];
+    // The mapping stays valid after the channel is closed
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      for (int i = 0; i < chunks.length; i++)
+        chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << CHUNK_BITS, chunkLength(bytes, i));
+    }
+    return new OffHeapGrid(size, chunks);
+  }
+
+  // Returns the number of bytes needed for a grid of the given size, at 4 positions per byte
+  private static long byteCount(int size) {
+    return ((long) size * size + 3) >>> 2;
+  }
+
+  private static int chunkCount(long bytes) {
+    return (int) ((bytes + CHUNK_MASK) >>> CHUNK_BITS);
+  }
+
+  // Returns the length of the given chunk; every chunk but the last is full
+  private static int chunkLength(long bytes, int chunk) {
+    return (int) Math.min(1L << CHUNK_BITS, bytes - ((long) chunk << CHUNK_BITS));
+  }
+
+  // Throws IllegalStateException if the grid has been closed
+  private void checkOpen() {
+    if (chunks == null)
+      throw new IllegalStateException("The grid has been closed.");
+  }
+
+  // Returns the 2-bit code of the given cell
+  private int code(long cell) {
+    long index = cell >>> 2;
+    byte b = chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+    return (b >>> ((int) (cell & 3) << 1)) & 3;
+  }
+
+  // Returns the size of the grid (i.e. the length of one side of the square)
+  @Override
+  public int getSize() {
+    checkOpen();
+    return size;
+  }
+
+  // Returns the colour at the given row and column
+  @Override
+  public PieceColour getPiece(int row, int col) {
+    checkOpen();
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+
+    int code = code((long) row * size + col);
+    return code == WHITE ? PieceColour.WHITE : code == BLACK ? PieceColour.BLACK : PieceColour.NONE;
+  }
+
+  // Sets the colour at the given row and column
+  @Override
+  public void setPiece(int row, int col, PieceColour piece) {
+    checkOpen();
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+
+    // Throws IllegalArgumentException if the piece is not a valid colour
+    // PieceColour.NONE is accepted for clearing a position, the same as in GridImpl
+    if (piece != PieceColour.NONE && piece != PieceColour.WHITE && piece != PieceColour.BLACK)
+      throw new IllegalArgumentException("The inputted colour is invalid.");
+
+    // Clears the 2 bits of the position, then sets the code of the given colour
+    long cell = (long) row * size + col;
+    long index = cell >>> 2;
+    ByteBuffer chunk = chunks[(int) (index >>> CHUNK_BITS)];
+    int offset = (int) (index & CHUNK_MASK);
+    int shift = (int) (cell & 3) << 1;
+    int code = piece == PieceColour.WHITE ? WHITE : piece == PieceColour.BLACK ? BLACK : NONE;
+    chunk.put(offset, (byte) ((chunk.get(offset) & ~(3 << shift)) | (code << shift)));
+  }
+
+  // Copies a row of one colour into words of bits (see RowBits), reading each byte once for its 4 positions
+  @Override
+  public void copyRow(PieceColour piece, int row, long[] bits, int offset) {
+    checkOpen();
+    int code = piece == PieceColour.WHITE ? WHITE : piece == PieceColour.BLACK ? BLACK : NONE;
+    for (int word = 0; word < (size + 63) >>> 6; word++)
+      bits[offset + word] = 0;
+    long cell = (long) row * size;
+    int col = 0;
+    while (col < size) {
+      long index = cell >>> 2;
+      int b = chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+      // The row can start and end part of the way through a byte
+      for (int shift = (int) (cell & 3) << 1; shift < 8 && col < size; shift += 2, col++, cell++)
+        if (((b >>> shift) & 3) == code)
+          bits[offset + (col >>> 6)] |= 1L << col;
+    }
+  }
+
+  // Returns true if no position holds a piece (see RowBits)
+  // An empty position is a 0 code, so the bytes are checked 8 at a time for being all zero
+  @Override
+  public boolean isEmpty() {
+    checkOpen();
+    for (ByteBuffer chunk : chunks) {
+      int length = chunk.capacity(), i = 0;
+      for (; i + 8 <= length; i += 8)
+        if (chunk.getLong(i) != 0)
+          return false;
+      for (; i < length; i++)
+        if (chunk.get(i) != 0)
+          return false;
+    }
+    return true;
+  }
+
+  // Writes any changes to a mapped grid back to its file; does nothing for a grid in direct buffers
+  public void force() {
+    checkOpen();
+    for (ByteBuffer chunk : chunks)
+      if (chunk instanceof MappedByteBuffer)
+        ((MappedByteBuffer) chunk).force();
+  }
+
+  // Releases the grid, after which it must not be used
+  // Java 17 has no way to free a direct or mapped buffer on demand, so the memory itself is released
+  // by the garbage collector once the buffers are unreachable; closing only drops this grid's references to them
+  // Closing a grid twice does nothing
+  @Override
+  public void close() {
+    chunks = null;
+  }
+
+  // Creates and returns a copy of the grid in new direct buffers, even if this grid is mapped to a file
+  // The bytes are copied a chunk at a time rather than one position at a time
+  @Override
+  public Grid copy() {
+    checkOpen();
+    OffHeapGrid copy = new OffHeapGrid(size);
+    for (int i = 0; i < chunks.length; i++)
+      copy.chunks[i].put(0, chunks[i], 0, chunks[i].capacity());
+    return copy;
+  }
+
+  // Returns the string representation of the grid in the same format as GridImpl
+  @Override
+  public String toString() {
+    checkOpen();
+    StringBuilder output = new StringBuilder(size * (size + 1));
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        int code = code((long) row * size + col);
+        output.append(code == WHITE ? 'W' : code == BLACK ? 'B' : '.');
+      }
+      output.append('\n');
+    }
+    return output.toString();
+  }
+}
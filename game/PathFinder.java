@@ -1,88 +1,664 @@
 package game;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class PathFinder {
-    private static class Position {
-        int row, col;
+    // The ways topToBottom() and leftToRight() can search the grid
+    // Both give the same results; BFS is the default
+    public enum Strategy {
+        // A breadth-first search visiting one position at a time, stopping as soon as it reaches the end
+        BFS,
+        // A flood fill on rows packed into 64-bit words, so that each step handles 64 positions at once
+        // Faster on large grids where the search has to visit most of the pieces, especially a BitGridImpl,
+        // whose rows are copied a word at a time
+        BITSET,
+        // Labels the components of both colours in horizontal strips of the grid on ForkJoinPool.commonPool(),
+        // then joins the labels across the strip boundaries, see paths()
+        // For very large grids on several cores; on small grids the cost of the tasks outweighs the work they share
+        PARALLEL
+    }
+
+    // Scratch arrays reused by every search on the same thread, so that a search allocates nothing
+    // The BFS strategy works on the padded cells of a Topology, the other arrays on flat positions (row * size + col)
+    private static class Scratch {
+        int[] queue = new int[0];
+        //visited[i] < stamp means the piece at padded cell i has not been read by the current search, so nothing has to be cleared between searches
+        //the border cells hold Integer.MAX_VALUE, so they always look visited and the search never steps off the grid
+        int[] visited = new int[0];
+        int stamp;
+        int size = -1; //the size of grid the border of visited is marked for
+        //the pieces of the player and the positions reached so far, for the BITSET strategy
+        long[] pieces = new long[0];
+        long[] reached = new long[0];
+        //rows whose reached positions have grown since they last spread into the row below (or above)
+        boolean[] spreadDown = new boolean[0];
+        boolean[] spreadUp = new boolean[0];
 
-        Position(int row, int col) {
-            this.row = row;
-            this.col = col;
+        //starts a new search on a grid with the given topology
+        void reset(Topology topology) {
+            int cells = topology.getPaddedCells();
+            if (queue.length < cells) {
+                queue = new int[cells];
+                visited = new int[cells];
+                size = -1;
+            }
+            if (size != topology.getSize() || stamp == Integer.MAX_VALUE - 1) {
+                //the border moves with the size, and a stamp reaching the border value could make old marks look current
+                Arrays.fill(visited, 0, cells, 0);
+                topology.markBorder(visited, Integer.MAX_VALUE);
+                size = topology.getSize();
+                stamp = 0;
+            }
+            stamp++;
         }
 
-        @Override
-        //compare the fields (row and col) of obj with those of the Position object calling this method
-        public boolean equals(Object obj) {
-            Position other = (Position) obj; //cast (force) the type of Object to Position
-            return row == other.row && col == other.col;
+        //makes room for the bitsets of a grid with the given number of rows and words, all cleared
+        void resetBits(int rows, int words) {
+            if (pieces.length < words) {
+                pieces = new long[words];
+                reached = new long[words];
+            } else {
+                Arrays.fill(pieces, 0, words, 0);
+                Arrays.fill(reached, 0, words, 0);
+            }
+            if (spreadDown.length < rows) {
+                spreadDown = new boolean[rows];
+                spreadUp = new boolean[rows];
+            }
         }
     }
 
-    private static Collection<Position> getOnRow(Grid grid, int row, PieceColour piece) {
-        Collection<Position> positions = new ArrayList<>();
-        for (int col = 0; col < grid.getSize(); col++) //for every piece in the given row
-            if (grid.getPiece(row, col) == piece) //if that piece is in the given color (piece)
-                positions.add(new Position(row, col)); //add that piece to the array "positions"
-        return positions;
-    }
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
 
-    private static Collection<Position> getOnCol(Grid grid, int col, PieceColour piece) {
-        Collection<Position> positions = new ArrayList<>();
-        for (int row = 0; row < grid.getSize(); row++)
-            if (grid.getPiece(row, col) == piece)
-                positions.add(new Position(row, col));
-        return positions;
+    // The edges of the grid a component can touch, as bits of an edge mask
+    public static final int TOP = 1, BOTTOM = 2, LEFT = 4, RIGHT = 8;
+
+    // The connected components of both colours of a grid, found by connections()
+    // Every piece has the label of its component (0, 1, 2, ...), and every component has its colour and an edge mask
+    // of the edges of the grid it touches; two pieces have the same label if and only if there is a path between them
+    public static final class Connections {
+        private final int size;
+        private final int[] labels; //the label of each position (row * size + col), or -1 if it is empty
+        private final int[] edges; //the edge mask of each component
+        private final PieceColour[] colours; //the colour of each component
+
+        private Connections(int size, int[] labels, int[] edges, PieceColour[] colours) {
+            this.size = size;
+            this.labels = labels;
+            this.edges = edges;
+            this.colours = colours;
+        }
+
+        // Returns the number of components of both colours
+        public int getComponentCount() {
+            return edges.length;
+        }
+
+        // Returns the label of the component of the piece at the given row and column, or -1 if the position is empty
+        // Throws IllegalArgumentException if the row or column is out of bounds
+        public int getComponent(int row, int col) {
+            if (row < 0 || row >= size || col < 0 || col >= size)
+                throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+            return labels[row * size + col];
+        }
+
+        // Returns the edge mask (TOP, BOTTOM, LEFT and RIGHT) of the component with the given label
+        public int getEdges(int component) {
+            return edges[component];
+        }
+
+        // Returns the colour of the component with the given label
+        public PieceColour getColour(int component) {
+            return colours[component];
+        }
+
+        // Returns true if a component of the player's colour touches both the top and the bottom row
+        public boolean topToBottom(PieceColour player) {
+            return connects(player, TOP | BOTTOM);
+        }
+
+        // Returns true if a component of the player's colour touches both the left and the right column
+        public boolean leftToRight(PieceColour player) {
+            return connects(player, LEFT | RIGHT);
+        }
+
+        private boolean connects(PieceColour player, int mask) {
+            for (int i = 0; i < edges.length; i++)
+                if (colours[i] == player && (edges[i] & mask) == mask)
+                    return true;
+            return false;
+        }
     }
 
     //this is a Breadth-first search (BFS) algorithm - a type of graph traversal algorithm that visits all the neighbors of a node before moving on to the next level. In this case, a 'node' is a position on the grid, and two positions are 'neighbors' if they're adjacent (up, down, left, or right) and have the same color.
-    private static boolean findPath(Grid grid, Collection<Position> starts, Collection<Position> ends) {
-        Queue<Position> queue = new ArrayDeque<>(); //create an array "queue" (FIFO)
-        boolean[][] visited = new boolean[grid.getSize()][grid.getSize()]; //create a 2D array with the same size as the grid, for storing "visited pieces". Initially, all positions are marked as unvisited (default = false).
-        for (Position start : starts) { //for every element in the "starts" array
-            queue.offer(start); //add that element to the "queue" array and return true if successful, return false if the element cannot be added
-            visited[start.row][start.col] = true; //in the "visited" array, set that element as true (i.e. visisted) by using the row and col of that element
-        }
-        int[][] dirs = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
-        //above, below, left, rigt
-        while (!queue.isEmpty()) { //while the "queue" array is NOT empty
-            Position pos = queue.poll(); //remove and return the 1st element in the "queue" array, assign that element to a variable "pos"
-            if (ends.contains(pos)) //true if the "ends" array contains a element whose row and col are the same as those of "pos" - initially, "pos" is the starting pos in the "start" array, but after running the below for loop, "pos" will keep changing to the 4-neighbour(s), which will be the head of the current path
-                return true; //a path from one of the start positions to one of the end positions is found
-            for (int d = 0; d < dirs.length; d++) { //for 0 to 3
-                int row = pos.row + dirs[d][0];
-                int col = pos.col + dirs[d][1];
-                //the 3 lines above effectively check the piece above, below, at the left of and at the right of "pos" ("4-neighbour(s)")
-                if (row < 0 || row >= grid.getSize() || col < 0 || col >= grid.getSize())
-                //if the row or col of the 4-neighbour(s) is out of bound
-                    continue; //end the current loop and go to the next loop
-                if (visited[row][col]) //if the 4-neighbour(s) has been visited before
-                    continue; //end the current loop and go to the next loop
-                PieceColour piece = grid.getPiece(row, col); //assign the color of the 4-neighbour(s) to "piece"
-                if (piece != grid.getPiece(pos.row, pos.col)) //if the color of the 4-neighbour(s) is NOT the same as that of "pos" (centre)
-                    continue; //end the current loop and go to the next loop
-                // if all the above tests are passed:
-                queue.offer(new Position(row, col)); //add that 4-neighbour(s) to the "queue" array
-                visited[row][col] = true; //in the "visited" array, set that 4-neighbour(s) as true (i.e. visisted)
+    //the search starts from every piece of the given colour on the first row (rows == true) or the first column (rows == false)
+    //and succeeds when it reaches the last row (or column); every position it reaches has the given colour, so reaching the last line is the same as reaching one of its pieces
+    //positions are the padded cells of the grid's Topology, so the neighbours are fixed offsets and the border stops the search without bounds checks
+    //a cell is marked visited as soon as its piece is read, whether or not it is the player's, so the search reads every cell
+    //at most once and only the cells next to the ones it reaches; only the start line is read up front
+    //every position enters the queue at most once, so a queue as long as the padded board never wraps around
+    private static boolean findPath(Grid grid, PieceColour piece, boolean rows) {
+        int size = grid.getSize();
+        Topology topology = Topology.forSize(size);
+        Scratch scratch = SCRATCH.get();
+        scratch.reset(topology);
+        int[] queue = scratch.queue, visited = scratch.visited, offsets = topology.getNeighbourOffsets();
+        int stamp = scratch.stamp, up = offsets[0], down = offsets[1];
+        int end = rows ? BOTTOM : RIGHT;
+
+        //the queue holds positions from head (inclusive) to tail (exclusive)
+        int head = 0, tail = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows ? 0 : i, col = rows ? i : 0;
+            int pos = topology.pad(row, col);
+            visited[pos] = stamp;
+            if (grid.getPiece(row, col) == piece)
+                queue[tail++] = pos;
+        }
+
+        while (head != tail) {
+            int pos = queue[head++];
+            if ((topology.edges(pos) & end) != 0) //the end test is a table lookup instead of a search of the end positions
+                return true;
+            //above, below, left, right; a neighbour off the grid is a border cell, which always looks visited
+            int row = topology.row(pos), col = topology.col(pos);
+            if (visited[pos + up] < stamp) {
+                visited[pos + up] = stamp;
+                if (grid.getPiece(row - 1, col) == piece)
+                    queue[tail++] = pos + up;
+            }
+            if (visited[pos + down] < stamp) {
+                visited[pos + down] = stamp;
+                if (grid.getPiece(row + 1, col) == piece)
+                    queue[tail++] = pos + down;
+            }
+            if (visited[pos - 1] < stamp) {
+                visited[pos - 1] = stamp;
+                if (grid.getPiece(row, col - 1) == piece)
+                    queue[tail++] = pos - 1;
+            }
+            if (visited[pos + 1] < stamp) {
+                visited[pos + 1] = stamp;
+                if (grid.getPiece(row, col + 1) == piece)
+                    queue[tail++] = pos + 1;
             }
         }
         return false; //there's no path from any of the start positions to any of the end positions
     }
 
+    // Finds the connected components of both colours in a single sweep of the grid
+    // Each piece is joined to the pieces of the same colour above and to the left of it in a disjoint-set forest
+    // (union by size with path halving), then a second pass over the forest numbers the components and collects their edges
+    // Answers topToBottom() and leftToRight() for both players at once, as well as which edges every component touches
+    public static Connections connections(Grid grid) {
+        int size = grid.getSize();
+        int cells = size * size;
+        PieceColour[] pieces = new PieceColour[cells];
+        int[] parent = new int[cells];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int pos = row * size + col;
+                PieceColour piece = grid.getPiece(row, col);
+                pieces[pos] = piece;
+                parent[pos] = -1; //a root, holding minus the size of its set
+                if (piece == PieceColour.NONE)
+                    continue;
+                if (row > 0 && pieces[pos - size] == piece)
+                    union(parent, pos, pos - size);
+                if (col > 0 && pieces[pos - 1] == piece)
+                    union(parent, pos, pos - 1);
+            }
+        }
+
+        //numbers the roots in the order they are met, so the labels do not depend on how the sets were merged
+        int[] labels = new int[cells];
+        int[] rootLabels = new int[cells];
+        Arrays.fill(rootLabels, -1);
+        int count = 0;
+        int[] edges = new int[cells];
+        Topology topology = Topology.forSize(size);
+        PieceColour[] colours = new PieceColour[cells];
+        for (int pos = 0; pos < cells; pos++) {
+            if (pieces[pos] == PieceColour.NONE) {
+                labels[pos] = -1;
+                continue;
+            }
+            int root = find(parent, pos);
+            if (rootLabels[root] < 0) {
+                rootLabels[root] = count;
+                colours[count] = pieces[pos];
+                count++;
+            }
+            int label = rootLabels[root];
+            labels[pos] = label;
+            edges[label] |= topology.edges(topology.pad(pos));
+        }
+        return new Connections(size, labels, Arrays.copyOf(edges, count), Arrays.copyOf(colours, count));
+    }
+
+    //returns the root of the set containing pos, halving the path on the way
+    private static int find(int[] parent, int pos) {
+        while (parent[pos] >= 0) {
+            if (parent[parent[pos]] >= 0)
+                parent[pos] = parent[parent[pos]];
+            pos = parent[pos];
+        }
+        return pos;
+    }
+
+    //merges the sets containing a and b, putting the smaller set under the root of the larger one
+    private static void union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if (a == b)
+            return;
+        if (parent[a] > parent[b]) { //sizes are stored negated, so a is the smaller set
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        parent[a] += parent[b];
+        parent[b] = a;
+    }
+
+    //a flood fill on bitsets: every row of the grid is packed into words of 64 positions, and the set of positions reached
+    //from the first row (rows == true) or the first column (rows == false) grows by whole words at a time until it stops changing
+    //each sweep spreads the reached positions into the next row and fills every row along its runs of pieces,
+    //first from the top row down to the bottom and then back up, so that paths which turn back are also followed
+    private static boolean fillPath(Grid grid, PieceColour piece, boolean rows) {
+        int size = grid.getSize();
+        if (size == 0)
+            return false;
+        int words = (size + 63) >>> 6; //words per row
+        Scratch scratch = SCRATCH.get();
+        scratch.resetBits(size, size * words);
+        long[] pieces = scratch.pieces, reached = scratch.reached;
+        boolean[] spreadDown = scratch.spreadDown, spreadUp = scratch.spreadUp;
+
+        //row i is held in words i * words to (i + 1) * words - 1, with column j in bit j % 64 of word j / 64
+        //a BitGridImpl or another RowBits grid (or a view of one) can copy a whole row instead of reading one position at a time
+        Grid source = grid instanceof ReadOnlyGrid ? ((ReadOnlyGrid) grid).getGrid() : grid;
+        for (int i = 0; i < size; i++) {
+            if (source instanceof RowBits) {
+                ((RowBits) source).copyRow(piece, i, pieces, i * words);
+            } else {
+                for (int j = 0; j < size; j++)
+                    if (source.getPiece(i, j) == piece)
+                        pieces[i * words + (j >>> 6)] |= 1L << j;
+            }
+        }
+
+        //the starts are the pieces on the top row, or the pieces in the first column of every row
+        //the last row is reached when any of its words is not empty, and the last column when the bit of column size - 1 is set in any row
+        int endWord = (size - 1) >>> 6;
+        long endBit = 1L << (size - 1);
+        for (int i = 0; i < size; i++) {
+            if (rows && i == 0)
+                System.arraycopy(pieces, 0, reached, 0, words);
+            else if (!rows)
+                reached[i * words] = pieces[i * words] & 1;
+            fillLine(reached, pieces, i * words, words);
+            spreadDown[i] = spreadUp[i] = !isEmpty(reached, i * words, words);
+        }
+        //only rows which have grown since they last spread are spread again, so the sweeps after the first few are cheap
+        boolean changed = true;
+        while (changed) {
+            if (rows ? !isEmpty(reached, (size - 1) * words, words) : anySet(reached, endWord, endBit, size, words))
+                return true;
+            changed = false;
+            for (int i = 1; i < size; i++) {
+                if (spreadDown[i - 1]) {
+                    spreadDown[i - 1] = false;
+                    if (spread(reached, pieces, (i - 1) * words, i * words, words)) {
+                        spreadDown[i] = spreadUp[i] = true;
+                        changed = true;
+                    }
+                }
+            }
+            spreadDown[size - 1] = false;
+            for (int i = size - 2; i >= 0; i--) {
+                if (spreadUp[i + 1]) {
+                    spreadUp[i + 1] = false;
+                    if (spread(reached, pieces, (i + 1) * words, i * words, words)) {
+                        spreadDown[i] = spreadUp[i] = true;
+                        changed = true;
+                    }
+                }
+            }
+            spreadUp[0] = false;
+        }
+        return false;
+    }
+
+    //adds the positions of line to that are next to a reached position of line from and hold a piece, then fills line to along its pieces
+    //returns true if line to reached any new position
+    private static boolean spread(long[] reached, long[] pieces, int from, int to, int words) {
+        boolean grown = false;
+        for (int w = 0; w < words; w++) {
+            long next = reached[to + w] | (reached[from + w] & pieces[to + w]);
+            if (next != reached[to + w]) {
+                reached[to + w] = next;
+                grown = true;
+            }
+        }
+        if (grown)
+            fillLine(reached, pieces, to, words);
+        return grown;
+    }
+
+    //extends the reached positions of a line to the whole runs of pieces containing them
+    //the first pass fills towards the end of the line, carrying from the top bit of a word into the next word,
+    //and the second pass fills back towards the start, so every run is filled from end to end
+    private static void fillLine(long[] reached, long[] pieces, int line, int words) {
+        long carry = 0;
+        for (int w = 0; w < words; w++) {
+            long mask = pieces[line + w];
+            long filled = fillUp(reached[line + w] | (carry & mask), mask);
+            reached[line + w] = filled;
+            carry = filled >>> 63;
+        }
+        carry = 0;
+        for (int w = words - 1; w >= 0; w--) {
+            long mask = pieces[line + w];
+            long filled = fillDown(reached[line + w] | (carry & mask), mask);
+            reached[line + w] = filled;
+            carry = (filled & 1) << 63;
+        }
+    }
+
+    //a Kogge-Stone fill: extends every set bit of gen towards the higher bits for as long as the bits are set in mask
+    //after the step with shift s, a bit stays in mask only if it and the 2s - 1 bits below it were all in the original mask,
+    //so each step doubles the distance gen can move, and six steps cover a whole word
+    private static long fillUp(long gen, long mask) {
+        gen |= mask & (gen << 1);
+        mask &= mask << 1;
+        gen |= mask & (gen << 2);
+        mask &= mask << 2;
+        gen |= mask & (gen << 4);
+        mask &= mask << 4;
+        gen |= mask & (gen << 8);
+        mask &= mask << 8;
+        gen |= mask & (gen << 16);
+        mask &= mask << 16;
+        gen |= mask & (gen << 32);
+        return gen;
+    }
+
+    //the same as fillUp(), towards the lower bits
+    private static long fillDown(long gen, long mask) {
+        gen |= mask & (gen >>> 1);
+        mask &= mask >>> 1;
+        gen |= mask & (gen >>> 2);
+        mask &= mask >>> 2;
+        gen |= mask & (gen >>> 4);
+        mask &= mask >>> 4;
+        gen |= mask & (gen >>> 8);
+        mask &= mask >>> 8;
+        gen |= mask & (gen >>> 16);
+        mask &= mask >>> 16;
+        gen |= mask & (gen >>> 32);
+        return gen;
+    }
+
+    //returns true if the given bit of the given word is set in any row
+    private static boolean anySet(long[] bits, int word, long bit, int size, int words) {
+        for (int i = 0; i < size; i++)
+            if ((bits[i * words + word] & bit) != 0)
+                return true;
+        return false;
+    }
+
+    private static boolean isEmpty(long[] bits, int from, int words) {
+        for (int w = 0; w < words; w++)
+            if (bits[from + w] != 0)
+                return false;
+        return true;
+    }
+
+    // The paths found by paths(), as bits of a mask
+    public static final int WHITE_TOP_TO_BOTTOM = 1, WHITE_LEFT_TO_RIGHT = 2, BLACK_TOP_TO_BOTTOM = 4, BLACK_LEFT_TO_RIGHT = 8;
+
+    //paths() splits a grid into about 4 strips per thread of the pool, but never into strips of fewer rows than this
+    private static final int MIN_STRIP_ROWS = 64;
+
+    //the components of one strip of rows, labelled on their own by labelStrip()
+    //only the labels of the first and last row are kept, as the other rows cannot touch another strip
+    private static final class Strip {
+        final int firstRow, lastRow; //inclusive
+        int base; //the global label of the first component, so the components of all the strips have labels 0, 1, 2, ...
+        int count;
+        byte[] colours; //the Topology code of each component
+        int[] edges; //the edge mask of each component
+        int[] top, bottom; //the component of each position of the first and last row, or -1 if it is empty
+
+        Strip(int firstRow, int lastRow) {
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+        }
+    }
+
+    // Finds which of the 4 paths (WHITE_TOP_TO_BOTTOM, WHITE_LEFT_TO_RIGHT, BLACK_TOP_TO_BOTTOM and BLACK_LEFT_TO_RIGHT)
+    // the grid has, labelling it on the threads of the given pool, and returns them as a mask
+    // The grid is split into horizontal strips, and each strip's components are labelled by its own task
+    // with the same disjoint-set forest as connections(), so the work shared out is proportional to the cells
+    // The components touching a strip boundary are then joined in a lock-free disjoint-set forest (an AtomicIntegerArray
+    // whose roots are linked with compare-and-set), one task per boundary, and the edge masks are gathered at the roots
+    // Only the strip being labelled needs memory for every one of its cells, so several threads label a huge grid in
+    // less memory than connections(); the grid must not be changed while it is being read
+    public static int paths(Grid grid, ForkJoinPool pool) {
+        if (pool == null)
+            throw new IllegalArgumentException("The inputted pool must not be null.");
+        int size = grid.getSize();
+        int strips = Math.max(1, Math.min(size / MIN_STRIP_ROWS, pool.getParallelism() * 4));
+        Strip[] parts = new Strip[strips];
+        for (int i = 0; i < strips; i++)
+            parts[i] = new Strip((int) ((long) size * i / strips), (int) ((long) size * (i + 1) / strips) - 1);
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (Strip strip : parts)
+            tasks.add(() -> labelStrip(grid, strip, size));
+        invokeAll(pool, tasks);
+        int count = 0;
+        for (Strip strip : parts) {
+            strip.base = count;
+            count += strip.count;
+        }
+
+        //every component starts as a root of its own, and a root only ever changes by being linked under a smaller label
+        AtomicIntegerArray parent = new AtomicIntegerArray(count);
+        for (int i = 0; i < count; i++)
+            parent.set(i, i);
+        tasks.clear();
+        for (int i = 0; i + 1 < strips; i++) {
+            Strip above = parts[i], below = parts[i + 1];
+            tasks.add(() -> {
+                for (int col = 0; col < size; col++) {
+                    int a = above.bottom[col], b = below.top[col];
+                    if (a >= 0 && b >= 0 && above.colours[a] == below.colours[b])
+                        union(parent, above.base + a, below.base + b);
+                }
+                return 0;
+            });
+        }
+        invokeAll(pool, tasks);
+
+        //gathers the edge masks of every component at its root, then reads off the paths of the roots
+        AtomicIntegerArray rootEdges = new AtomicIntegerArray(count);
+        tasks.clear();
+        for (Strip strip : parts) {
+            tasks.add(() -> {
+                for (int i = 0; i < strip.count; i++)
+                    rootEdges.getAndAccumulate(find(parent, strip.base + i), strip.edges[i], (x, y) -> x | y);
+                return 0;
+            });
+        }
+        invokeAll(pool, tasks);
+        tasks.clear();
+        for (Strip strip : parts) {
+            tasks.add(() -> {
+                int result = 0;
+                for (int i = 0; i < strip.count; i++) {
+                    int label = strip.base + i;
+                    if (parent.get(label) != label)
+                        continue;
+                    int edges = rootEdges.get(label);
+                    boolean white = strip.colours[i] == Topology.WHITE;
+                    if ((edges & (TOP | BOTTOM)) == (TOP | BOTTOM))
+                        result |= white ? WHITE_TOP_TO_BOTTOM : BLACK_TOP_TO_BOTTOM;
+                    if ((edges & (LEFT | RIGHT)) == (LEFT | RIGHT))
+                        result |= white ? WHITE_LEFT_TO_RIGHT : BLACK_LEFT_TO_RIGHT;
+                }
+                return result;
+            });
+        }
+        return invokeAll(pool, tasks);
+    }
+
+    //labels the components of both colours within one strip, keeping their colours, their edges of the whole grid
+    //and the labels of the strip's first and last row
+    private static int labelStrip(Grid grid, Strip strip, int size) {
+        int rows = strip.lastRow - strip.firstRow + 1;
+        int cells = rows * size;
+        byte[] codes = new byte[cells];
+        int[] parent = new int[cells];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < size; col++) {
+                int pos = row * size + col;
+                byte code = Topology.code(grid.getPiece(strip.firstRow + row, col));
+                codes[pos] = code;
+                parent[pos] = -1; //a root, holding minus the size of its set
+                if (code == Topology.EMPTY)
+                    continue;
+                if (row > 0 && codes[pos - size] == code)
+                    union(parent, pos, pos - size);
+                if (col > 0 && codes[pos - 1] == code)
+                    union(parent, pos, pos - 1);
+            }
+        }
+
+        //numbers the roots in the order they are met, the same as connections()
+        int[] rootLabels = new int[cells];
+        Arrays.fill(rootLabels, -1);
+        byte[] colours = new byte[cells];
+        int[] edges = new int[cells];
+        int[] top = new int[size], bottom = new int[size];
+        int count = 0;
+        for (int pos = 0; pos < cells; pos++) {
+            int row = pos / size, col = pos - row * size;
+            int label = -1;
+            if (codes[pos] != Topology.EMPTY) {
+                int root = find(parent, pos);
+                if (rootLabels[root] < 0) {
+                    rootLabels[root] = count;
+                    colours[count] = codes[pos];
+                    count++;
+                }
+                label = rootLabels[root];
+                int gridRow = strip.firstRow + row;
+                edges[label] |= (gridRow == 0 ? TOP : 0) | (gridRow == size - 1 ? BOTTOM : 0)
+                        | (col == 0 ? LEFT : 0) | (col == size - 1 ? RIGHT : 0);
+            }
+            if (row == 0)
+                top[col] = label;
+            if (row == rows - 1)
+                bottom[col] = label;
+        }
+        strip.count = count;
+        strip.colours = Arrays.copyOf(colours, count);
+        strip.edges = Arrays.copyOf(edges, count);
+        strip.top = top;
+        strip.bottom = bottom;
+        return 0;
+    }
+
+    //returns the root of the set containing x in a forest shared between threads, halving the path on the way
+    //a failed compare-and-set only means another thread changed the link first, which leaves a valid path
+    private static int find(AtomicIntegerArray parent, int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x)
+                return x;
+            int grandparent = parent.get(p);
+            if (p != grandparent)
+                parent.compareAndSet(x, p, grandparent);
+            x = grandparent;
+        }
+    }
+
+    //merges the sets containing a and b in a forest shared between threads, linking the root with the larger label
+    //under the other one; if another thread links that root first, the roots are found again and the link retried
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            a = find(parent, a);
+            b = find(parent, b);
+            if (a == b)
+                return;
+            if (a < b) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            if (parent.compareAndSet(a, a, b))
+                return;
+        }
+    }
+
+    //runs the tasks on the pool, waits for all of them and returns the bitwise or of their results
+    private static int invokeAll(ForkJoinPool pool, List<Callable<Integer>> tasks) {
+        int result = 0;
+        try {
+            for (int mask : WorkerPool.invokeAll(pool, tasks))
+                result |= mask;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The search was interrupted.");
+        }
+        return result;
+    }
+
+    private static boolean search(Grid grid, PieceColour player, boolean rows, Strategy strategy) {
+        if (strategy == null)
+            throw new IllegalArgumentException("The inputted strategy must not be null.");
+        switch (strategy) {
+            case BITSET:
+                return fillPath(grid, player, rows);
+            case PARALLEL:
+                //paths() only labels pieces, so a path of empty positions is still found by the BFS
+                if (player != PieceColour.WHITE && player != PieceColour.BLACK)
+                    return findPath(grid, player, rows);
+                int mask = player == PieceColour.WHITE ? (rows ? WHITE_TOP_TO_BOTTOM : WHITE_LEFT_TO_RIGHT)
+                        : (rows ? BLACK_TOP_TO_BOTTOM : BLACK_LEFT_TO_RIGHT);
+                return (paths(grid, ForkJoinPool.commonPool()) & mask) != 0;
+            default:
+                return findPath(grid, player, rows);
+        }
+    }
+
     // Returns true if there is a path from the top row to the bottom row
     // consisting of pieces of the given player's colour.
     public static boolean topToBottom(Grid grid, PieceColour player) {
-        Collection<Position> starts = getOnRow(grid, 0, player);
-        Collection<Position> ends = getOnRow(grid, grid.getSize() - 1, player);
-        return findPath(grid, starts, ends);
+        return topToBottom(grid, player, Strategy.BFS);
+    }
+
+    // The same as topToBottom(grid, player), searching with the given strategy
+    public static boolean topToBottom(Grid grid, PieceColour player, Strategy strategy) {
+        return search(grid, player, true, strategy);
     }
 
 
     // Returns true if there is a path from the left column to the right column
     // consisting of pieces of the given player's colour.
     public static boolean leftToRight(Grid grid, PieceColour player) {
-        Collection<Position> starts = getOnCol(grid, 0, player);
-        Collection<Position> ends = getOnCol(grid, grid.getSize() - 1, player);
-        return findPath(grid, starts, ends);
+        return leftToRight(grid, player, Strategy.BFS);
+    }
+
+    // The same as leftToRight(grid, player), searching with the given strategy
+    public static boolean leftToRight(Grid grid, PieceColour player, Strategy strategy) {
+        return search(grid, player, false, strategy);
     }
 }
\ No newline at end of file
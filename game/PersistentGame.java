@@ -0,0 +1,209 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+// A game whose positions are immutable states that share their unchanged rows with each other
+// A move creates a new State with one new row, and the new state points to the same arrays as the old one for every other row
+// so keeping a position alive costs O(size) memory instead of a copy of the whole grid
+// makeMove() moves the game on to the new state; the old state is unchanged and can still be used, e.g. to branch again
+// copy() is O(1), as the copy starts from the same state
+public class PersistentGame implements Game {
+
+  // A position of the game: the pieces on the grid and the player to move
+  // A State is immutable, so it can be shared by any number of games and threads
+  // It is also a read-only Grid, so setPiece() throws an UnsupportedOperationException
+  public static final class State implements Grid {
+    // The encoding of the pieces in the rows
+    private static final byte NONE = 0, WHITE = 1, BLACK = 2;
+
+    private final int size;
+    private final byte[][] rows;
+    private final PieceColour currentPlayer;
+    private final int emptyCount;
+
+    // The winner, found the first time it is needed, or null until then
+    // Computing it twice gives the same result and it is a single reference, so threads racing to set it do no harm
+    private PieceColour winner;
+
+    private State(int size, byte[][] rows, PieceColour currentPlayer, int emptyCount) {
+      this.size = size;
+      this.rows = rows;
+      this.currentPlayer = currentPlayer;
+      this.emptyCount = emptyCount;
+    }
+
+    // Returns the empty state of a grid of the given size, with white to move
+    private static State empty(int size) {
+      // Every row starts as the same array of empty positions, as rows are never changed in place
+      byte[] emptyRow = new byte[size];
+      byte[][] rows = new byte[size][];
+      for (int row = 0; row < size; row++)
+        rows[row] = emptyRow;
+      return new State(size, rows, PieceColour.WHITE, size * size);
+    }
+
+    // Returns the state after the current player places a piece at the given row and column
+    // Only the changed row is copied; the new state shares every other row with this one
+    // Throws IllegalArgumentException if the position is already occupied or out of bounds
+    public State play(int row, int col) {
+      if (row < 0 || row >= size || col < 0 || col >= size || rows[row][col] != NONE)
+        throw new IllegalArgumentException("The move is invalid as the position is already occupied or out of bounds.");
+      byte[][] newRows = rows.clone();
+      newRows[row] = rows[row].clone();
+      newRows[row][col] = currentPlayer == PieceColour.WHITE ? WHITE : BLACK;
+      PieceColour nextPlayer = currentPlayer == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+      return new State(size, newRows, nextPlayer, emptyCount - 1);
+    }
+
+    // Returns the player to move
+    public PieceColour currentPlayer() {
+      return currentPlayer;
+    }
+
+    // Returns true if a player has won or there are no empty positions left
+    public boolean isOver() {
+      return winner() != PieceColour.NONE || emptyCount == 0;
+    }
+
+    // Returns the winner, or PieceColour.NONE if there is none (yet)
+    // White is checked first, the same order as GameImpl uses
+    // The paths of both colours are found in a single sweep of the grid by PathFinder.connections()
+    public PieceColour winner() {
+      PieceColour result = winner;
+      if (result == null) {
+        PathFinder.Connections connections = PathFinder.connections(this);
+        if (connections.topToBottom(PieceColour.WHITE) || connections.leftToRight(PieceColour.WHITE))
+          result = PieceColour.WHITE;
+        else if (connections.topToBottom(PieceColour.BLACK) || connections.leftToRight(PieceColour.BLACK))
+          result = PieceColour.BLACK;
+        else
+          result = PieceColour.NONE;
+        winner = result;
+      }
+      return result;
+    }
+
+    // Returns the number of empty positions
+    public int getEmptyCount() {
+      return emptyCount;
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    @Override
+    public PieceColour getPiece(int row, int col) {
+      if (row < 0 || row >= size || col < 0 || col >= size)
+        throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+      byte piece = rows[row][col];
+      return piece == WHITE ? PieceColour.WHITE : piece == BLACK ? PieceColour.BLACK : PieceColour.NONE;
+    }
+
+    // A state cannot be changed
+    @Override
+    public void setPiece(int row, int col, PieceColour piece) {
+      throw new UnsupportedOperationException("A game state is read-only.");
+    }
+
+    // Returns a deep copy of the pieces as a normal grid, which can be changed without affecting the state
+    @Override
+    public Grid copy() {
+      Grid grid = new GridImpl(size);
+      for (int row = 0; row < size; row++)
+        for (int col = 0; col < size; col++)
+          if (rows[row][col] != NONE)
+            grid.setPiece(row, col, getPiece(row, col));
+      return grid;
+    }
+
+    // Returns the string representation of the pieces in the same format as GridImpl
+    @Override
+    public String toString() {
+      StringBuilder output = new StringBuilder(size * (size + 1));
+      for (int row = 0; row < size; row++) {
+        for (int col = 0; col < size; col++)
+          output.append(rows[row][col] == WHITE ? 'W' : rows[row][col] == BLACK ? 'B' : '.');
+        output.append('\n');
+      }
+      return output.toString();
+    }
+  }
+
+  private State state;
+
+  // A constructor that takes a single parameter "size" defining the side length of the game grid
+  public PersistentGame(int size) {
+    // Throws IllegalArgumentException if the grid size is less than 1
+    if (size < 1)
+      throw new IllegalArgumentException("The inputted size must be greater than zero.");
+    state = State.empty(size);
+  }
+
+  // Creates a game which continues from the given state
+  public PersistentGame(State state) {
+    if (state == null)
+      throw new IllegalArgumentException("The inputted state must not be null.");
+    this.state = state;
+  }
+
+  // Returns the current state, which stays valid whatever moves are made on this game afterwards
+  public State getState() {
+    return state;
+  }
+
+  @Override
+  public boolean isOver() {
+    return state.isOver();
+  }
+
+  @Override
+  public PieceColour winner() {
+    return state.winner();
+  }
+
+  // Returns PieceColour.NONE once the game is over, the same as GameImpl
+  @Override
+  public PieceColour currentPlayer() {
+    if (state.isOver())
+      return PieceColour.NONE;
+    return state.currentPlayer();
+  }
+
+  // Gets a Collection of all valid moves available to the current player, using the shared MoveImpl objects
+  @Override
+  public Collection<Move> getMoves() {
+    int size = state.getSize();
+    Collection<Move> validMoves = new ArrayList<>(state.getEmptyCount());
+    for (int row = 0; row < size; row++)
+      for (int col = 0; col < size; col++)
+        if (state.rows[row][col] == State.NONE)
+          validMoves.add(MoveImpl.of(size, row, col));
+    return validMoves;
+  }
+
+  // Moves the game on to the state after the move; the previous state is left unchanged
+  // Throws an IllegalArgumentException if the position is already occupied or out of bounds
+  @Override
+  public void makeMove(Move move) {
+    // If the game is over, the output of this method does not matter (i.e. undefined).
+    // The status is not checked here, so that a move does not have to search the grid for paths
+    state = state.play(move.getRow(), move.getCol());
+  }
+
+  // Returns a deep copy of the grid
+  @Override
+  public Grid getGrid() {
+    return state.copy();
+  }
+
+  // Returns a game starting from the same state
+  // The state is immutable, so the two games cannot affect each other even though they share it
+  @Override
+  public Game copy() {
+    return new PersistentGame(state);
+  }
+}
@@ -0,0 +1,52 @@
+package game;
+
+// A read-only view of another grid
+// Reading a piece reads it from the underlying grid, so the view always shows its current pieces
+// and creating a view copies nothing
+// Setting a piece through the view throws an UnsupportedOperationException
+public final class ReadOnlyGrid implements Grid {
+  private final Grid grid;
+
+  // Creates a view of the given grid
+  public ReadOnlyGrid(Grid grid) {
+    if (grid == null)
+      throw new IllegalArgumentException("The inputted grid must not be null.");
+    this.grid = grid;
+  }
+
+  // Returns the size of the underlying grid
+  @Override
+  public int getSize() {
+    return grid.getSize();
+  }
+
+  // Returns the colour at the given row and column of the underlying grid
+  // Throws IllegalArgumentException if the row or column is out of bounds
+  @Override
+  public PieceColour getPiece(int row, int col) {
+    return grid.getPiece(row, col);
+  }
+
+  // The view cannot change the underlying grid
+  @Override
+  public void setPiece(int row, int col, PieceColour piece) {
+    throw new UnsupportedOperationException("The grid is read-only.");
+  }
+
+  // Returns a deep copy of the underlying grid
+  // The copy is a normal grid that can be changed without affecting the view or the grid behind it
+  @Override
+  public Grid copy() {
+    return grid.copy();
+  }
+
+  // Returns the grid behind the view, so that PathFinder can read a BitGridImpl directly
+  Grid getGrid() {
+    return grid;
+  }
+
+  @Override
+  public String toString() {
+    return grid.toString();
+  }
+}
@@ -0,0 +1,12 @@
+package game;
+
+// A grid which can read its pieces in bulk from its own storage, faster than reading them one position at a time
+// Used by PathFinder's BITSET strategy, and by GameImpl to check that a grid is empty
+interface RowBits {
+    // Copies the positions of the given row holding the given colour (PieceColour.NONE for the empty positions)
+    // into (size + 63) / 64 words of bits, starting at bits[offset], with column col in bit (col & 63) of word (col >>> 6)
+    void copyRow(PieceColour piece, int row, long[] bits, int offset);
+
+    // Returns true if no position of the grid holds a piece
+    boolean isEmpty();
+}
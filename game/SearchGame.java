@@ -0,0 +1,43 @@
+package game;
+
+// An extension of the Game interface for search algorithms such as ai.Minimax
+// Moves can be undone, so that a search can apply and revert moves on a single game
+// instead of creating a copy of the game for every position it visits
+// Positions also have a hash, so that a search can cache what it has learnt about them
+// Moves can also be listed and made as positions (row * size + col), so that a search creates no Move objects
+public interface SearchGame extends Game {
+    // Replaces the contents of the list with the positions (row * size + col) of all valid moves for the current player
+    // The moves are in the same order as getMoves() returns them
+    // The list is empty if there are no valid moves
+    void getMoves(MoveList moves);
+
+    // Executes the move at the given position (row * size + col) for the current player, the same as makeMove(Move)
+    // Throws an IllegalArgumentException if the position is already occupied or out of bounds
+    void makeMove(int position);
+
+    // Undoes the last move made by makeMove()
+    // Restores the grid, the current player and whether the game is over to what they were before that move
+    // Throws an IllegalStateException if no move has been made
+    void unmakeMove();
+
+    // Returns a 64-bit hash of the position (the pieces on the grid and the player to move)
+    // Positions with the same pieces and player to move have the same hash, however they were reached
+    // The hash is updated on every move, so this method does not scan the grid
+    long getHash();
+
+    // Returns the canonical hash of the position: the smallest hash of the 8 rotations and reflections of the position
+    // (see Symmetry), each with the same player to move
+    // Symmetric positions have the same winner, and they also have the same canonical hash
+    // An implementation may compute the hashes of the 8 images from the grid on the first call and update them on every move after that
+    long getCanonicalHash();
+
+    // Returns the symmetry (0 to 7, see Symmetry) which turns this position into the image whose hash is the canonical hash
+    // Symmetry.map() with it turns a position on this grid into the matching position on the canonical image
+    int getCanonicalSymmetry();
+
+    // Returns a read-only view of the grid, for callers that only need to read the pieces
+    // Unlike getGrid(), nothing is copied: the view shows the pieces of this game as they are when it is read,
+    // so it changes as moves are made and undone
+    // Setting a piece through the view throws an UnsupportedOperationException
+    Grid getGridView();
+}
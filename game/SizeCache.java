@@ -0,0 +1,49 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+// A cache of one object per grid size, such as the Zobrist keys or the symmetry tables of that size
+// The objects of small grids (up to MAX_SMALL_SIZE) are kept for good, as they are small and a program may use several sizes
+// Of the larger sizes only the most recently used one is kept, so the cache never holds on to more than one large object
+// Two threads asking for the same size at once may both create it; objects of the same size must be interchangeable
+final class SizeCache<T> {
+  static final int MAX_SMALL_SIZE = 64;
+
+  // A large size and its object, replaced together
+  private static final class Entry<T> {
+    final int size;
+    final T value;
+
+    Entry(int size, T value) {
+      this.size = size;
+      this.value = value;
+    }
+  }
+
+  private final IntFunction<T> factory;
+  private final AtomicReferenceArray<T> small = new AtomicReferenceArray<>(MAX_SMALL_SIZE + 1);
+  private volatile Entry<T> large;
+
+  SizeCache(IntFunction<T> factory) {
+    this.factory = factory;
+  }
+
+  // Returns the object of the given size, creating it if it is not in the cache
+  T get(int size) {
+    if (size >= 0 && size <= MAX_SMALL_SIZE) {
+      T value = small.get(size);
+      if (value == null) {
+        small.compareAndSet(size, null, factory.apply(size));
+        value = small.get(size);
+      }
+      return value;
+    }
+    Entry<T> entry = large;
+    if (entry == null || entry.size != size) {
+      entry = new Entry<>(size, factory.apply(size));
+      large = entry;
+    }
+    return entry.value;
+  }
+}
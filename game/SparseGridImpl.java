@@ -0,0 +1,208 @@
+package game;
+
+// Manages the grid by implementing all the methods in the grid interface
+// Pieces are stored in tiles of 64x64 positions, and a tile is only allocated when a piece is first placed in it,
+// so a large grid that is mostly empty takes little memory and is created without visiting every position
+// A tile holds one 64-bit word per row for each colour, with column (col & 63) in bit (col & 63) of the word
+// The tiles are found through one lazily allocated array per row of tiles, so creating a grid costs O(size / 64)
+// Copies share their tiles until one of the grids changes a tile, which then gets its own copy of it (copy-on-write)
+public class SparseGridImpl implements Grid, RowBits {
+
+  // Visits one piece of the grid, see forEachPiece()
+  public interface PieceVisitor {
+    void visit(int row, int col, PieceColour piece);
+  }
+
+  private static final int TILE_BITS = 6;
+  private static final int TILE = 1 << TILE_BITS;
+
+  private static class Tile {
+    final long[] white = new long[TILE];
+    final long[] black = new long[TILE];
+    // The grid allowed to change the tile in place; any other grid sharing it has to copy it first
+    Object owner;
+
+    Tile(Object owner) {
+      this.owner = owner;
+    }
+
+    Tile copy(Object owner) {
+      Tile copy = new Tile(owner);
+      System.arraycopy(white, 0, copy.white, 0, TILE);
+      System.arraycopy(black, 0, copy.black, 0, TILE);
+      return copy;
+    }
+  }
+
+  private int size;
+  private int tilesPerSide;
+  // tiles[tileRow][tileCol], where a missing row of tiles or a missing tile is empty
+  private Tile[][] tiles;
+  // The token of this grid, which marks the tiles it owns
+  // copy() gives this grid a new token, so that neither it nor the copy owns the tiles they now share
+  private Object owner = new Object();
+
+  // A constructor consistent with game.tests.GridTest
+  public SparseGridImpl(int size) {
+    this.size = size;
+
+    // Only the array of rows of tiles is allocated; every tile starts missing, which represents an empty grid
+    tilesPerSide = (size + TILE - 1) >>> TILE_BITS;
+    tiles = new Tile[tilesPerSide][];
+  }
+
+  // Returns the size of the grid (i.e. the length of one side of the square)
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  // Returns the colour at the given row and column
+  @Override
+  public PieceColour getPiece(int row, int col) {
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+
+    // PieceColour.NONE is returned if the position's tile has not been allocated
+    Tile[] tileRow = tiles[row >>> TILE_BITS];
+    Tile tile = tileRow == null ? null : tileRow[col >>> TILE_BITS];
+    if (tile == null)
+      return PieceColour.NONE;
+    long bit = 1L << col;
+    if ((tile.white[row & (TILE - 1)] & bit) != 0)
+      return PieceColour.WHITE;
+    if ((tile.black[row & (TILE - 1)] & bit) != 0)
+      return PieceColour.BLACK;
+    return PieceColour.NONE;
+  }
+
+  // Sets the colour at the given row and column
+  @Override
+  public void setPiece(int row, int col, PieceColour piece) {
+    // Throws IllegalArgumentException if the row or column is out of bounds
+    if (row < 0 || row >= size || col < 0 || col >= size)
+      throw new IllegalArgumentException("The inputted row or column is out of bounds.");
+
+    // Throws IllegalArgumentException if the piece is not a valid colour
+    // PieceColour.NONE is accepted for clearing a position, the same as in GridImpl
+    if (piece != PieceColour.NONE && piece != PieceColour.WHITE && piece != PieceColour.BLACK)
+      throw new IllegalArgumentException("The inputted colour is invalid.");
+
+    Tile[] tileRow = tiles[row >>> TILE_BITS];
+    Tile tile = tileRow == null ? null : tileRow[col >>> TILE_BITS];
+    // Clearing a position of a missing tile changes nothing, so no tile is allocated for it
+    if (tile == null && piece == PieceColour.NONE)
+      return;
+    if (tileRow == null)
+      tileRow = tiles[row >>> TILE_BITS] = new Tile[tilesPerSide];
+    if (tile == null)
+      tile = tileRow[col >>> TILE_BITS] = new Tile(owner);
+    else if (tile.owner != owner) // the tile is shared with a copy, so this grid changes its own copy of it
+      tile = tileRow[col >>> TILE_BITS] = tile.copy(owner);
+
+    // Note that Java only uses the low 6 bits of the shift distance, so (1L << col) selects the bit within the tile's row
+    int word = row & (TILE - 1);
+    long bit = 1L << col;
+    tile.white[word] &= ~bit;
+    tile.black[word] &= ~bit;
+    if (piece == PieceColour.WHITE)
+      tile.white[word] |= bit;
+    else if (piece == PieceColour.BLACK)
+      tile.black[word] |= bit;
+  }
+
+  // Calls the visitor with every piece on the grid (but not the empty positions), row by row
+  // Missing tiles are skipped without looking at their positions, so this is fast on a mostly empty grid
+  public void forEachPiece(PieceVisitor visitor) {
+    for (int tileRow = 0; tileRow < tilesPerSide; tileRow++) {
+      Tile[] row = tiles[tileRow];
+      if (row == null)
+        continue;
+      for (int word = 0; word < TILE; word++) {
+        for (int tileCol = 0; tileCol < tilesPerSide; tileCol++) {
+          Tile tile = row[tileCol];
+          if (tile == null)
+            continue;
+          // Visits the set bits of the row in column order, whichever colour they are
+          long pieces = tile.white[word] | tile.black[word];
+          while (pieces != 0) {
+            long bit = pieces & -pieces;
+            pieces ^= bit;
+            int col = (tileCol << TILE_BITS) + Long.numberOfTrailingZeros(bit);
+            visitor.visit((tileRow << TILE_BITS) + word, col, (tile.white[word] & bit) != 0 ? PieceColour.WHITE : PieceColour.BLACK);
+          }
+        }
+      }
+    }
+  }
+
+  // Returns the number of tiles allocated, i.e. how many 64x64 blocks of the grid have ever held a piece
+  public int getTileCount() {
+    int count = 0;
+    for (Tile[] row : tiles)
+      if (row != null)
+        for (Tile tile : row)
+          if (tile != null)
+            count++;
+    return count;
+  }
+
+  // Returns true if no position holds a piece (see RowBits)
+  // Only the allocated tiles are checked, so a grid which has never had a piece answers in O(size / 64)
+  @Override
+  public boolean isEmpty() {
+    for (Tile[] row : tiles)
+      if (row != null)
+        for (Tile tile : row)
+          if (tile != null)
+            for (int word = 0; word < TILE; word++)
+              if ((tile.white[word] | tile.black[word]) != 0)
+                return false;
+    return true;
+  }
+
+  // Copies a row of one colour into words of bits (see RowBits)
+  // Every word of bits is one row of a tile, so it is copied as a whole; a missing tile has no pieces
+  @Override
+  public void copyRow(PieceColour piece, int row, long[] bits, int offset) {
+    Tile[] tileRow = tiles[row >>> TILE_BITS];
+    int word = row & (TILE - 1);
+    for (int tileCol = 0; tileCol < tilesPerSide; tileCol++) {
+      Tile tile = tileRow == null ? null : tileRow[tileCol];
+      long whiteBits = tile == null ? 0 : tile.white[word], blackBits = tile == null ? 0 : tile.black[word];
+      long value = piece == PieceColour.WHITE ? whiteBits : piece == PieceColour.BLACK ? blackBits : ~(whiteBits | blackBits);
+      int length = Math.min(TILE, size - (tileCol << TILE_BITS));
+      bits[offset + tileCol] = length == TILE ? value : value & ((1L << length) - 1);
+    }
+  }
+
+  // Creates and returns a copy of this grid
+  // The grid returned shares every tile with this one, and whichever grid changes a shared tile first copies it,
+  // so there is no way to modify this grid by modifying the "copy" returned
+  @Override
+  public Grid copy() {
+    SparseGridImpl copy = new SparseGridImpl(size);
+    for (int tileRow = 0; tileRow < tilesPerSide; tileRow++)
+      if (tiles[tileRow] != null)
+        copy.tiles[tileRow] = tiles[tileRow].clone();
+    // This grid no longer owns the tiles it now shares with the copy
+    owner = new Object();
+    return copy;
+  }
+
+  // Returns the string representation of a Grid / SparseGridImpl object in the same format as GridImpl
+  @Override
+  public String toString() {
+    StringBuilder output = new StringBuilder(size * (size + 1));
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        PieceColour piece = getPiece(i, j);
+        output.append(piece == PieceColour.WHITE ? 'W' : piece == PieceColour.BLACK ? 'B' : '.');
+      }
+      // Append a newline character after finishing the loop for a row
+      output.append('\n');
+    }
+    return output.toString();
+  }
+}
@@ -0,0 +1,102 @@
+package game;
+
+// The 8 symmetries of the square grid (4 rotations, each with or without a reflection)
+// A path from the top row to the bottom row becomes a path from the left column to the right column (or stays one),
+// so symmetric positions have the same winner, and a search only needs to look at one of them
+// Positions are flat indices (row * size + col); symmetry 0 is the identity
+// Only grids up to SizeCache.MAX_SMALL_SIZE keep the symmetries in tables; a larger grid computes them from the row and column
+public class Symmetry {
+  public static final int COUNT = 8;
+  public static final int IDENTITY = 0;
+
+  private static final SizeCache<Symmetry> TABLES = new SizeCache<>(Symmetry::new);
+
+  private int size;
+  // maps[s][position] is the position the symmetry s moves the position to, and inverses[s] undoes it
+  // Both are null on a large grid
+  private int[][] maps;
+  private int[][] inverses;
+
+  private Symmetry(int size) {
+    this.size = size;
+    if (size > SizeCache.MAX_SMALL_SIZE)
+      return;
+    maps = new int[COUNT][size * size];
+    inverses = new int[COUNT][size * size];
+    for (int s = 0; s < COUNT; s++) {
+      for (int row = 0; row < size; row++) {
+        for (int col = 0; col < size; col++) {
+          int image = transform(s, row, col);
+          maps[s][row * size + col] = image;
+          inverses[s][image] = row * size + col;
+        }
+      }
+    }
+  }
+
+  // Returns where the symmetry s moves (row, col), as a position
+  private int transform(int s, int row, int col) {
+    int last = size - 1;
+    switch (s) {
+      case 0: return row * size + col;                    // identity
+      case 1: return col * size + (last - row);           // rotation by 90 degrees clockwise
+      case 2: return (last - row) * size + (last - col);  // rotation by 180 degrees
+      case 3: return (last - col) * size + row;           // rotation by 270 degrees clockwise
+      case 4: return row * size + (last - col);           // reflection in the vertical axis
+      case 5: return col * size + row;                    // reflection in the main diagonal
+      case 6: return (last - row) * size + col;           // reflection in the horizontal axis
+      default: return (last - col) * size + (last - row); // reflection in the other diagonal
+    }
+  }
+
+  // Returns the symmetries of grids of the given size, creating them on first use
+  public static Symmetry forSize(int size) {
+    return TABLES.get(size);
+  }
+
+  // Returns the position the given symmetry moves the position to
+  public int map(int symmetry, int position) {
+    if (maps == null)
+      return transform(symmetry, position / size, position % size);
+    return maps[symmetry][position];
+  }
+
+  // Returns the position the given symmetry moves to the position, undoing map()
+  // Rotating by 90 and by 270 degrees undo each other, and every other symmetry undoes itself
+  public int unmap(int symmetry, int position) {
+    if (inverses == null)
+      return transform(symmetry == 1 ? 3 : symmetry == 3 ? 1 : symmetry, position / size, position % size);
+    return inverses[symmetry][position];
+  }
+
+  // Returns true if the grid looks the same after the given symmetry
+  public boolean isSymmetric(Grid grid, int symmetry) {
+    for (int position = 0; position < size * size; position++) {
+      int image = map(symmetry, position);
+      if (grid.getPiece(position / size, position % size) != grid.getPiece(image / size, image % size))
+        return false;
+    }
+    return true;
+  }
+
+  // Returns the Zobrist hash of the position after the given symmetry, with the given player to move
+  public long hash(Grid grid, PieceColour toMove, int symmetry) {
+    Zobrist zobrist = Zobrist.forSize(size);
+    long hash = toMove == PieceColour.BLACK ? zobrist.side() : 0;
+    for (int row = 0; row < size; row++)
+      for (int col = 0; col < size; col++)
+        hash ^= zobrist.piece(grid.getPiece(row, col), map(symmetry, row * size + col));
+    return hash;
+  }
+
+  // Returns the canonical hash of the position: the smallest of the Zobrist hashes of its 8 symmetric images
+  // Symmetric positions have the same canonical hash, so a cache keyed by it finds all of them
+  // This is the same value as GameImpl.getCanonicalHash() for a game with the same pieces and player to move
+  public static long canonicalHash(Grid grid, PieceColour toMove) {
+    Symmetry symmetry = forSize(grid.getSize());
+    long canonical = Long.MAX_VALUE;
+    for (int s = 0; s < COUNT; s++)
+      canonical = Math.min(canonical, symmetry.hash(grid, toMove, s));
+    return canonical;
+  }
+}
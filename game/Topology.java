@@ -0,0 +1,164 @@
+package game;
+
+import java.util.Arrays;
+
+// The neighbours of the positions of a grid of one size, laid out on a padded board with a border of sentinel cells
+// The padded board is (size + 2) x (size + 2), and position (row, col) of the grid is padded cell (row + 1) * (size + 2) + col + 1,
+// so every position of the grid has all 4 neighbours on the padded board, and a walk over the grid can step to
+// padded + offset for each of getNeighbourOffsets() without checking the bounds: a step off the grid lands on the border,
+// which a walk stops at by giving it a value no position has (e.g. BORDER on a board of piece codes)
+// The tables are built on first use and shared by every grid of the same size, like the Zobrist keys
+// Only grids up to SizeCache.MAX_SMALL_SIZE have tables; on a larger grid they would take several times the memory
+// of the grid itself, so the same values are computed from the row and column instead
+public class Topology {
+  // The codes of the pieces on a padded board, and the code of the border cells
+  public static final byte EMPTY = 0, WHITE = 1, BLACK = 2, BORDER = 3;
+
+  // The largest grid with a topology: the cells of its padded board, (size + 2) * (size + 2), are the most an int can count
+  public static final int MAX_SIZE = 46338;
+
+  private static final SizeCache<Topology> TABLES = new SizeCache<>(Topology::new);
+
+  private int size;
+  private int width;
+  // The neighbours above, below, to the left and to the right, as offsets on the padded board
+  private int[] offsets;
+  // padded[position] is the padded cell of the position (row * size + col), and rows[cell] and cols[cell] undo it (-1 on the border)
+  // All of the tables are null on a large grid
+  private int[] padded;
+  private int[] rows;
+  private int[] cols;
+  // The edges of the grid (PathFinder.TOP, BOTTOM, LEFT and RIGHT) each padded cell lies on, 0 on the border
+  private byte[] edges;
+  // An empty padded board, copied by newBoard()
+  private byte[] emptyBoard;
+
+  private Topology(int size) {
+    this.size = size;
+    width = size + 2;
+    offsets = new int[] { -width, width, -1, 1 };
+    if (size > SizeCache.MAX_SMALL_SIZE)
+      return;
+    padded = new int[size * size];
+    rows = new int[width * width];
+    cols = new int[width * width];
+    edges = new byte[width * width];
+    emptyBoard = new byte[width * width];
+    Arrays.fill(rows, -1);
+    Arrays.fill(cols, -1);
+    Arrays.fill(emptyBoard, BORDER);
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        int cell = (row + 1) * width + col + 1;
+        padded[row * size + col] = cell;
+        rows[cell] = row;
+        cols[cell] = col;
+        emptyBoard[cell] = EMPTY;
+        edges[cell] = (byte) edgesOf(row, col);
+      }
+    }
+  }
+
+  // Returns the edges of the grid the position at the given row and column lies on
+  private int edgesOf(int row, int col) {
+    return (row == 0 ? PathFinder.TOP : 0) | (row == size - 1 ? PathFinder.BOTTOM : 0)
+        | (col == 0 ? PathFinder.LEFT : 0) | (col == size - 1 ? PathFinder.RIGHT : 0);
+  }
+
+  // Returns the topology of grids of the given size, creating it on first use
+  // Throws IllegalArgumentException if the size is greater than MAX_SIZE
+  public static Topology forSize(int size) {
+    if (size > MAX_SIZE)
+      throw new IllegalArgumentException("The inputted size must be at most " + MAX_SIZE + ".");
+    return TABLES.get(size);
+  }
+
+  // Returns the code of a piece on a padded board
+  public static byte code(PieceColour piece) {
+    return piece == PieceColour.WHITE ? WHITE : piece == PieceColour.BLACK ? BLACK : EMPTY;
+  }
+
+  // Returns the size of the grid (not of the padded board)
+  public int getSize() {
+    return size;
+  }
+
+  // Returns the number of cells of the padded board, border included
+  public int getPaddedCells() {
+    return width * width;
+  }
+
+  // Returns the offsets of the neighbours above, below, to the left and to the right of a padded cell
+  // The array is shared, so it must not be changed
+  public int[] getNeighbourOffsets() {
+    return offsets;
+  }
+
+  // Returns the padded cell of the given row and column
+  public int pad(int row, int col) {
+    return (row + 1) * width + col + 1;
+  }
+
+  // Returns the padded cell of the given position (row * size + col)
+  public int pad(int position) {
+    if (padded == null)
+      return pad(position / size, position % size);
+    return padded[position];
+  }
+
+  // Returns the position (row * size + col) of a padded cell, or -1 if it is on the border
+  public int position(int padded) {
+    int row = row(padded);
+    return row < 0 ? -1 : row * size + col(padded);
+  }
+
+  // Returns the row of a padded cell, or -1 if it is on the border
+  public int row(int padded) {
+    if (rows == null) {
+      int row = padded / width - 1, col = padded % width - 1;
+      return row < 0 || row >= size || col < 0 || col >= size ? -1 : row;
+    }
+    return rows[padded];
+  }
+
+  // Returns the column of a padded cell, or -1 if it is on the border
+  public int col(int padded) {
+    if (cols == null) {
+      int row = padded / width - 1, col = padded % width - 1;
+      return row < 0 || row >= size || col < 0 || col >= size ? -1 : col;
+    }
+    return cols[padded];
+  }
+
+  // Returns the edges of the grid the padded cell lies on, as a mask of PathFinder.TOP, BOTTOM, LEFT and RIGHT
+  public int edges(int padded) {
+    if (edges == null) {
+      int row = row(padded);
+      return row < 0 ? 0 : edgesOf(row, col(padded));
+    }
+    return edges[padded];
+  }
+
+  // Returns a new padded board with BORDER on the border and EMPTY everywhere else
+  public byte[] newBoard() {
+    if (emptyBoard == null) {
+      byte[] board = new byte[width * width];
+      Arrays.fill(board, BORDER);
+      for (int row = 1; row <= size; row++)
+        Arrays.fill(board, row * width + 1, row * width + size + 1, EMPTY);
+      return board;
+    }
+    return emptyBoard.clone();
+  }
+
+  // Sets every border cell of an array laid out like the padded board to the given value
+  // e.g. a value no walk accepts, so that the walk never leaves the grid
+  public void markBorder(int[] cells, int value) {
+    for (int i = 0; i < width; i++) {
+      cells[i] = value;
+      cells[(width - 1) * width + i] = value;
+      cells[i * width] = value;
+      cells[i * width + width - 1] = value;
+    }
+  }
+}
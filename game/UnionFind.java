@@ -0,0 +1,146 @@
+package game;
+
+import java.util.Arrays;
+
+// A disjoint-set (union-find) structure over the elements 0 to count - 1
+// Every set also carries a bit mask of flags, which is merged when two sets are merged
+// Used by GameImpl to track which pieces are connected and which edges of the grid each group touches
+// More elements can be added with add(), so the structure only needs to be as large as the number of elements in use
+// Every change is logged, so that the structure can be rolled back to an earlier mark when a move is undone
+public class UnionFind {
+  private int[] parent;
+  private int[] rank;
+  private int[] flags;
+  private int count;
+
+  // The change log, four ints per change: the root whose flags changed, its old flags,
+  // the root attached under it (or -1 if none, or ADDED if the change added the element) and whether its rank was increased (1 or 0)
+  private static final int ADDED = -2;
+  private int[] log;
+  private int logSize;
+
+  // Creates a structure in which every element is in a set of its own with no flags
+  public UnionFind(int count) {
+    this.count = count;
+    parent = new int[Math.max(count, 16)];
+    rank = new int[parent.length];
+    flags = new int[parent.length];
+    log = new int[64];
+    for (int i = 0; i < count; i++)
+      parent[i] = i;
+  }
+
+  // Returns the number of elements
+  public int size() {
+    return count;
+  }
+
+  // Adds an element in a set of its own with no flags, and returns it (the old number of elements)
+  // The arrays grow when full, and rolling back to a mark from before the element was added removes it again
+  public int add() {
+    if (count == parent.length) {
+      parent = Arrays.copyOf(parent, count * 2);
+      rank = Arrays.copyOf(rank, count * 2);
+      flags = Arrays.copyOf(flags, count * 2);
+    }
+    int x = count++;
+    parent[x] = x;
+    rank[x] = 0;
+    flags[x] = 0;
+    record(x, ADDED, false);
+    return x;
+  }
+
+  // Returns the representative (root) element of the set containing x
+  // There is no path compression, as it could not be rolled back cheaply
+  // Union by rank alone keeps every tree within log2(count) levels
+  public int find(int x) {
+    while (parent[x] != x)
+      x = parent[x];
+    return x;
+  }
+
+  // Merges the sets containing a and b, and returns the flags of the merged set
+  // The root of lower rank is attached under the other root, which keeps the trees shallow
+  public int union(int a, int b) {
+    int rootA = find(a);
+    int rootB = find(b);
+    if (rootA == rootB)
+      return flags[rootA];
+    if (rank[rootA] < rank[rootB]) {
+      int swap = rootA;
+      rootA = rootB;
+      rootB = swap;
+    }
+    boolean rankIncreased = rank[rootA] == rank[rootB];
+    record(rootA, rootB, rankIncreased);
+    parent[rootB] = rootA;
+    if (rankIncreased)
+      rank[rootA]++;
+    flags[rootA] |= flags[rootB];
+    return flags[rootA];
+  }
+
+  // Adds the given flags to the set containing x, and returns the flags of that set
+  public int addFlags(int x, int newFlags) {
+    int root = find(x);
+    if ((flags[root] | newFlags) != flags[root]) {
+      record(root, -1, false);
+      flags[root] |= newFlags;
+    }
+    return flags[root];
+  }
+
+  // Returns the flags of the set containing x
+  public int getFlags(int x) {
+    return flags[find(x)];
+  }
+
+  // Returns true if a and b are in the same set
+  public boolean connected(int a, int b) {
+    return find(a) == find(b);
+  }
+
+  // Returns a mark for the current state, which can later be passed to rollback()
+  public int mark() {
+    return logSize;
+  }
+
+  // Undoes every union() and addFlags() made since the given mark, newest first
+  public void rollback(int mark) {
+    while (logSize > mark) {
+      logSize -= 4;
+      int root = log[logSize];
+      flags[root] = log[logSize + 1];
+      int attached = log[logSize + 2];
+      if (attached == ADDED)
+        count--;
+      else if (attached != -1)
+        parent[attached] = attached;
+      rank[root] -= log[logSize + 3];
+    }
+  }
+
+  // Appends one change to the log, growing it when full
+  private void record(int root, int attached, boolean rankIncreased) {
+    if (logSize + 4 > log.length)
+      log = Arrays.copyOf(log, log.length * 2);
+    log[logSize] = root;
+    log[logSize + 1] = flags[root];
+    log[logSize + 2] = attached;
+    log[logSize + 3] = rankIncreased ? 1 : 0;
+    logSize += 4;
+  }
+
+  // Returns a deep copy of this structure, including its change log
+  public UnionFind copy() {
+    UnionFind copy = new UnionFind(0);
+    copy.parent = parent.clone();
+    copy.rank = rank.clone();
+    copy.flags = flags.clone();
+    copy.count = count;
+    copy.log = log.clone();
+    copy.logSize = logSize;
+    return copy;
+  }
+}
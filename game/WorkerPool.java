@@ -0,0 +1,109 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// A fixed number of threads which run lists of tasks for the searches that work in parallel
+// With one thread no pool is created and the tasks run one after another on the calling thread
+// The threads are kept until close() is called (or withThreads() replaces the pool), so an owner which is
+// no longer needed should close its pool rather than leave the threads waiting for work
+public final class WorkerPool implements AutoCloseable {
+  private final int threads;
+  private final ForkJoinPool pool;
+
+  public WorkerPool(int threads) {
+    if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+    this.threads = threads;
+    this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+  }
+
+  // Returns the number of threads the tasks run on
+  public int getThreads() {
+    return threads;
+  }
+
+  // Returns this pool if it has the given number of threads, otherwise closes it and returns a new pool
+  // with that many threads, so that owners can change their number of threads without leaking the old ones
+  public WorkerPool withThreads(int threads) {
+    if (threads == this.threads)
+      return this;
+    WorkerPool replacement = new WorkerPool(threads);
+    close();
+    return replacement;
+  }
+
+  // Runs the tasks, waits for all of them and returns their results in the order of the tasks
+  // See invokeAll(ForkJoinPool, List) for how failures are reported
+  public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws InterruptedException {
+    if (pool != null)
+      return invokeAll(pool, tasks);
+    List<T> results = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks)
+      results.add(call(task));
+    return results;
+  }
+
+  // Runs the tasks on the given pool, waits for all of them and returns their results in the order of the tasks
+  // An unchecked exception thrown by a task is rethrown as it is, and a checked one wrapped in an IllegalStateException
+  // (the tasks catch their own exceptions, as ForkJoinPool would otherwise rethrow copies of them)
+  // If the calling thread is interrupted while waiting, InterruptedException is thrown and the caller decides
+  // whether the tasks which have finished are enough (the tasks which have not go on running on the pool)
+  public static <T> List<T> invokeAll(ForkJoinPool pool, List<? extends Callable<T>> tasks) throws InterruptedException {
+    if (pool == null)
+      throw new IllegalArgumentException("The inputted pool must not be null.");
+    Throwable[] failures = new Throwable[tasks.size()];
+    List<Callable<T>> guarded = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      int index = i;
+      Callable<T> task = tasks.get(i);
+      guarded.add(() -> {
+        try {
+          return task.call();
+        } catch (Throwable e) {
+          failures[index] = e;
+          return null;
+        }
+      });
+    }
+    List<T> results = new ArrayList<>(tasks.size());
+    for (Future<T> future : pool.invokeAll(guarded)) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        throw unwrap(e.getCause());
+      }
+    }
+    // invokeAll() has waited for every task, so their failures are visible here
+    for (Throwable failure : failures)
+      if (failure != null)
+        throw unwrap(failure);
+    return results;
+  }
+
+  // Shuts the pool down; tasks which are already running finish, but no more can be run
+  @Override
+  public void close() {
+    if (pool != null)
+      pool.shutdown();
+  }
+
+  private static <T> T call(Callable<T> task) {
+    try {
+      return task.call();
+    } catch (Exception e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static RuntimeException unwrap(Throwable cause) {
+    if (cause instanceof RuntimeException)
+      return (RuntimeException) cause;
+    if (cause instanceof Error)
+      throw (Error) cause;
+    return new IllegalStateException(cause);
+  }
+}
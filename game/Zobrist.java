@@ -0,0 +1,74 @@
+package game;
+
+// Zobrist keys for hashing the positions of a game grid of one size
+// A position is hashed by XOR-ing the key of every piece on the grid (and the side key if black is to move)
+// so the hash can be updated in a single XOR whenever a piece is placed or removed
+// The keys are generated from a fixed seed, so every game of the same size uses the same keys
+// They are the values a java.util.SplittableRandom seeded with SEED + size returns, in the order white, black for every
+// position and then the side key, which the SplitMix64 function computes for any one key without the ones before it
+// Only grids up to SizeCache.MAX_SMALL_SIZE keep their keys in tables; a larger grid computes each key when asked,
+// so its keys take no memory and still have the same values
+public class Zobrist {
+  private static final long SEED = 0x5DEECE66DL;
+  // The step SplittableRandom adds to its state for every value
+  private static final long GAMMA = 0x9E3779B97F4A7C15L;
+  private static final SizeCache<Zobrist> TABLES = new SizeCache<>(Zobrist::new);
+
+  private long seed;
+  // white[position] and black[position], or both null on a large grid
+  private long[] white;
+  private long[] black;
+  private long side;
+
+  private Zobrist(int size) {
+    seed = SEED + size;
+    int cells = size * size;
+    if (size <= SizeCache.MAX_SMALL_SIZE) {
+      white = new long[cells];
+      black = new long[cells];
+      for (int i = 0; i < cells; i++) {
+        white[i] = key(2L * i);
+        black[i] = key(2L * i + 1);
+      }
+    }
+    side = key(2L * cells);
+  }
+
+  // Returns the key-th value of a SplittableRandom seeded with the seed of this size (counting from 0)
+  private long key(long key) {
+    long z = seed + (key + 1) * GAMMA;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // Returns the keys for grids of the given size, creating them on first use
+  public static Zobrist forSize(int size) {
+    return TABLES.get(size);
+  }
+
+  // Returns the key of a piece of the given colour at the given position (row * size + col)
+  // Returns 0 for PieceColour.NONE, as an empty position does not change the hash
+  public long piece(PieceColour colour, int position) {
+    if (colour == PieceColour.WHITE)
+      return white == null ? key(2L * position) : white[position];
+    if (colour == PieceColour.BLACK)
+      return black == null ? key(2L * position + 1) : black[position];
+    return 0;
+  }
+
+  // Returns the key which is included in the hash when black is the player to move
+  public long side() {
+    return side;
+  }
+
+  // Computes the hash of a whole grid from scratch
+  public long hash(Grid grid) {
+    int size = grid.getSize();
+    long hash = 0;
+    for (int row = 0; row < size; row++)
+      for (int col = 0; col < size; col++)
+        hash ^= piece(grid.getPiece(row, col), row * size + col);
+    return hash;
+  }
+}
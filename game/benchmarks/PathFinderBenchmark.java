@@ -0,0 +1,68 @@
+package game.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import game.*;
+
+// Compares the strategies of PathFinder on random grids of one size, stored as GridImpl, BitGridImpl and OffHeapGrid
+// Every strategy must give the same results, and the average time of a search with each strategy is printed
+// fill is the fraction of positions holding a white piece; the rest are black or empty
+// Usage: java game.benchmarks.PathFinderBenchmark [size] [fill] [grids]
+public class PathFinderBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        double fill = args.length > 1 ? Double.parseDouble(args[1]) : 0.6;
+        int grids = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        System.out.println("Grid size " + size + ", white fill " + fill + ", " + grids + " grids");
+        // PARALLEL runs on the common pool, so its time depends on how many threads the pool has
+        System.out.println("Common pool parallelism " + ForkJoinPool.commonPool().getParallelism());
+        Random random = new Random(1);
+        Grid[] plain = new Grid[grids], packed = new Grid[grids], offHeap = new Grid[grids];
+        for (int g = 0; g < grids; g++) {
+            plain[g] = new GridImpl(size);
+            packed[g] = new BitGridImpl(size);
+            offHeap[g] = new OffHeapGrid(size);
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    PieceColour piece = PieceColour.NONE;
+                    if (random.nextDouble() < fill)
+                        piece = PieceColour.WHITE;
+                    else if (random.nextBoolean())
+                        piece = PieceColour.BLACK;
+                    plain[g].setPiece(row, col, piece);
+                    packed[g].setPiece(row, col, piece);
+                    offHeap[g].setPiece(row, col, piece);
+                }
+            }
+        }
+
+        int[] expected = null;
+        int mismatches = 0;
+        for (Grid[] tests : new Grid[][] { plain, packed, offHeap }) {
+            for (PathFinder.Strategy strategy : PathFinder.Strategy.values()) {
+                int[] results = new int[grids];
+                // The first rounds warm up the JIT compiler, and only the last one is timed
+                long nanos = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    for (int g = 0; g < grids; g++)
+                        results[g] = (PathFinder.topToBottom(tests[g], PieceColour.WHITE, strategy) ? 1 : 0)
+                                | (PathFinder.leftToRight(tests[g], PieceColour.WHITE, strategy) ? 2 : 0);
+                    nanos = System.nanoTime() - start;
+                }
+                if (expected == null)
+                    expected = results;
+                for (int g = 0; g < grids; g++)
+                    if (results[g] != expected[g])
+                        mismatches++;
+                System.out.printf("%-12s %-8s %.1f us per search%n", tests[0].getClass().getSimpleName(), strategy,
+                        nanos / 1e3 / (2 * grids));
+            }
+        }
+        System.out.println(mismatches == 0 ? "All results matched" : mismatches + " results did not match!");
+    }
+}
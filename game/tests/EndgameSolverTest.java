@@ -0,0 +1,95 @@
+package game.tests;
+
+import java.util.Random;
+
+import ai.EndgameSolver;
+import game.*;
+
+public class EndgameSolverTest extends Test {
+    public static void main(String[] args) {
+        //the solver agrees with a plain negamax search on random positions near the end of 3x3 and 4x4 games
+        Random random = new Random(25);
+        EndgameSolver solver = new EndgameSolver();
+        int positions = 0, wrongResults = 0, wrongMoves = 0, earlyDraws = 0;
+        for (int size = 3; size <= 4; size++) {
+            for (int i = 0; i < 300; i++) {
+                GameImpl game = randomPosition(random, size, 1 + random.nextInt(8));
+                if (game == null)
+                    continue;
+                positions++;
+                int expected = negamax(game);
+                if (solver.solve(game) != expected)
+                    wrongResults++;
+
+                //the best move keeps the result: a win or a draw for the player who makes it
+                //(in a lost position every move loses, so it only has to be a legal move)
+                int move = solver.getBestMove();
+                game.makeMove(move);
+                int after = game.isOver() ? (game.winner() == PieceColour.NONE ? EndgameSolver.DRAW : EndgameSolver.WIN) : -negamax(game);
+                if (after != expected && expected != EndgameSolver.LOSS)
+                    wrongMoves++;
+                game.unmakeMove();
+
+                //positions which neither player can win even with every empty position are drawn before the grid is full
+                if (!canConnect(game, PieceColour.WHITE) && !canConnect(game, PieceColour.BLACK)) {
+                    earlyDraws++;
+                    if (solver.solve(game) != EndgameSolver.DRAW)
+                        wrongResults++;
+                }
+            }
+        }
+        expect(true, positions > 400);
+        expect(true, earlyDraws > 0);
+        expect(0, wrongResults);
+        expect(0, wrongMoves);
+
+        //a game which is already over has no best move
+        GameImpl over = new GameImpl(3);
+        for (int position : new int[] { 0, 1, 3, 2, 6 })
+            over.makeMove(position);
+        expect(EndgameSolver.LOSS, solver.solve(over));
+        expect(-1, solver.getBestMove());
+
+        checkAllTestsPassed();
+    }
+
+    //plays random moves until only the given number of positions is empty, or returns null if the game ends first
+    private static GameImpl randomPosition(Random random, int size, int empties) {
+        GameImpl game = new GameImpl(size);
+        MoveList moves = new MoveList(size * size);
+        while (!game.isOver()) {
+            game.getMoves(moves);
+            if (moves.size() <= empties)
+                return game;
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        return null;
+    }
+
+    //the result of the game for the player to move with perfect play by both players, by trying every move
+    private static int negamax(GameImpl game) {
+        if (game.isOver())
+            return game.winner() == PieceColour.NONE ? EndgameSolver.DRAW : EndgameSolver.LOSS;
+        MoveList moves = new MoveList(16);
+        game.getMoves(moves);
+        int best = EndgameSolver.LOSS;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            best = Math.max(best, -negamax(game));
+            game.unmakeMove();
+            if (best == EndgameSolver.WIN)
+                break;
+        }
+        return best;
+    }
+
+    //returns true if the player's pieces together with every empty position join two opposite edges
+    private static boolean canConnect(GameImpl game, PieceColour player) {
+        Grid grid = game.getGrid(); // a copy, so the game is not changed
+        for (int row = 0; row < grid.getSize(); row++)
+            for (int col = 0; col < grid.getSize(); col++)
+                if (grid.getPiece(row, col) == PieceColour.NONE)
+                    grid.setPiece(row, col, player);
+        return PathFinder.topToBottom(grid, player) || PathFinder.leftToRight(grid, player);
+    }
+}
@@ -4,13 +4,90 @@ import java.util.Collection;
 import game.*;
 
 public class GameTest extends Test {
+  // The Grid implementation used by newGame() for the current run of the tests
+  private static boolean useBitGrid;
+
+  // Creates a game on the Grid implementation currently under test
+  private static GameImpl newGame(int size) {
+    if (useBitGrid)
+      return new GameImpl(new BitGridImpl(size));
+    return new GameImpl(size);
+  }
+
   public static void main(String[] args) {
+    // Runs every test on a game backed by GridImpl, and then on a game backed by BitGridImpl
+    useBitGrid = false;
+    testGame();
+    useBitGrid = true;
+    testGame();
+
+    // A game cannot be started on a grid which already has pieces on it, whichever way the grid checks it is empty
+    boolean caught;
+    for (Grid occupied : new Grid[] { new BitGridImpl(3), new GridImpl(3), new SparseGridImpl(3), new OffHeapGrid(3) }) {
+      occupied.setPiece(2, 2, PieceColour.WHITE);
+      caught = false;
+      try {
+        new GameImpl(new ReadOnlyGrid(occupied));
+      } catch (IllegalArgumentException e) {
+        caught = true;
+      }
+      expect(true, caught);
+    }
+
+    // The largest grid a game supports is Topology.MAX_SIZE, as its padded board has to fit in an int
+    // A game on it starts without reading every position of an empty SparseGridImpl, and one size more is rejected
+    GameImpl largest = new GameImpl(new SparseGridImpl(Topology.MAX_SIZE));
+    int lastPosition = Topology.MAX_SIZE * Topology.MAX_SIZE - 1;
+    largest.makeMove(lastPosition);
+    largest.makeMove(0);
+    expect(Zobrist.forSize(Topology.MAX_SIZE).piece(PieceColour.WHITE, lastPosition)
+        ^ Zobrist.forSize(Topology.MAX_SIZE).piece(PieceColour.BLACK, 0), largest.getHash());
+    largest.unmakeMove();
+    expect(PieceColour.WHITE, largest.getGridView().getPiece(Topology.MAX_SIZE - 1, Topology.MAX_SIZE - 1));
+    expect(PieceColour.NONE, largest.getGridView().getPiece(0, 0));
+    for (int tooLarge = 0; tooLarge < 2; tooLarge++) {
+      caught = false;
+      try {
+        if (tooLarge == 0)
+          new GameImpl(new SparseGridImpl(Topology.MAX_SIZE + 1));
+        else
+          new GameImpl(Topology.MAX_SIZE + 1);
+      } catch (IllegalArgumentException e) {
+        caught = true;
+      }
+      expect(true, caught);
+    }
+
+    // A game on a grid too large for the shared tables of Topology, Zobrist and Symmetry should play the same way
+    // White fills the first column from top to bottom and black the second, so white wins with its last piece
+    int large = 100;
+    GameImpl game = new GameImpl(new SparseGridImpl(large));
+    for (int row = 0; row < large; row++) {
+      game.makeMove(row * large);
+      if (row < large - 1)
+        game.makeMove(row * large + 1);
+    }
+    expect(PieceColour.WHITE, game.winner());
+    game.unmakeMove();
+    expect(false, game.isOver());
+    expect(Zobrist.forSize(large).hash(game.getGridView()), game.getHash());
+    expect(Symmetry.canonicalHash(game.getGridView(), game.currentPlayer()), game.getCanonicalHash());
+    Game gameCopy = game.copy();
+    expect(true, gameCopy.equals(game));
+    game.makeMove((large - 1) * large);
+    expect(PieceColour.WHITE, game.winner());
+    expect(false, gameCopy.isOver());
+
+    checkAllTestsPassed();
+  }
+
+  private static void testGame() {
 
     // Section 1 - Tests for constructor provided initially
 
     boolean caught = false;
     try {
-      new GameImpl(0);
+      newGame(0);
     } catch (IllegalArgumentException e) {
       caught = true;
     }
@@ -18,7 +95,7 @@ public class GameTest extends Test {
 
     caught = false;
     try {
-      new GameImpl(5);
+      newGame(5);
     } catch (IllegalArgumentException e) {
       caught = true;
     }
@@ -35,7 +112,7 @@ public class GameTest extends Test {
       // The sizes of 0 and 5 have been tested by the tests provided at the beginning of this main method.
       caught = false;
       try {
-        new GameImpl(size);
+        newGame(size);
       } catch (IllegalArgumentException e) {
         caught = true;
       }
@@ -43,7 +120,7 @@ public class GameTest extends Test {
 
       // In the initial grid, the colour of all pieces should be PieceColour.NONE.
       boolean result = true;
-      GameImpl test = new GameImpl(size);
+      GameImpl test = newGame(size);
       for (int i = 0; i < size; i++)
         for (int j = 0; j < size; j++)
           if (test.getGrid().getPiece(i, j) != PieceColour.NONE) {
@@ -58,7 +135,7 @@ public class GameTest extends Test {
       // Section 2.2 - Tests for isOver() and winner() methods
 
       // At the start of a game, false for isOver() and PieceColour.NONE for winner() should be returned.
-      test = new GameImpl(size);
+      test = newGame(size);
       expect(false, test.isOver());
       expect(PieceColour.NONE, test.winner());
 
@@ -79,7 +156,7 @@ public class GameTest extends Test {
       expect(PieceColour.NONE, test.winner());
 
       // If the grid is not fully occupied and there is no winner, false for isOver() and PieceColour.NONE for winner() should be returned.
-      test = new GameImpl(size);
+      test = newGame(size);
       for (int i = 0; i < size - 1; i++)
         for (int j = 0; j < size - 1; j++)
           test.makeMove(new MoveImpl(i, j));
@@ -87,7 +164,7 @@ public class GameTest extends Test {
       expect(PieceColour.NONE, test.winner());
       
       // If the grid is not fully occupied and a player wins by occupying a column, true for isOver() and the winner's colour for winner() should be returned.
-      test = new GameImpl(size);
+      test = newGame(size);
       for (int i = 0; i < size - 1; i++)
         for (int j = 0; j < 2; j++)
           test.makeMove(new MoveImpl(i, j));
@@ -99,7 +176,7 @@ public class GameTest extends Test {
       expect(PieceColour.WHITE, test.winner());
 
       // If the grid is not fully occupied and a player wins by occupying a row, true for isOver() and the winner's colour for winner() should be returned.
-      test = new GameImpl(size);
+      test = newGame(size);
       for (int j = 0; j < size - 1; j++)
         for (int i = 0; i < 2; i++)
           test.makeMove(new MoveImpl(i, j));
@@ -113,7 +190,7 @@ public class GameTest extends Test {
       // Section 2.3 - Tests for getMoves() method
 
       // Initial empty grid - all positions should be available as valid moves
-      test = new GameImpl(size);
+      test = newGame(size);
       expect(size * size, test.getMoves().size());
 
       // Partially occupied grid - valid moves should be reduced by any moves made
@@ -121,7 +198,7 @@ public class GameTest extends Test {
       expect(size * size - 1, test.getMoves().size());
 
       // Fully occupied grid - no valid move should be available
-      test = new GameImpl(size);
+      test = newGame(size);
       if (size % 2 == 1) {
         for (int i = 0; i < size; i++)
           for (int j = 0; j < size; j++)
@@ -137,7 +214,7 @@ public class GameTest extends Test {
       expect(0, test.getMoves().size());
 
       // The elements in the Collection should correspond to the unoccupied positions in the grid
-      test = new GameImpl(size);
+      test = newGame(size);
       test.makeMove(new MoveImpl(size - 1, size - 1));
       Collection<Move> collection = test.getMoves();
       // Ensures that every move in the collection is valid:
@@ -161,7 +238,7 @@ public class GameTest extends Test {
       // Section 2.4 - Tests for makeMove() and currentPlayer() methods
       
       // Throws exeception if a move is one where the position is already occupied
-      test = new GameImpl(size);
+      test = newGame(size);
       test.makeMove(new MoveImpl(0, 0));
       caught = false;
       try {
@@ -172,7 +249,7 @@ public class GameTest extends Test {
       expect(true, caught);
       
       // No exeception if a move is one where the position is in bounds
-      test = new GameImpl(size);
+      test = newGame(size);
       // Creates an array of valid positions
       int[][] validPos = {
         {0, 0}, {size - 1, 0}, {0, size - 1}
@@ -191,7 +268,7 @@ public class GameTest extends Test {
       }
 
       // Throws exeception if a move is one where the position is out of bounds
-      test = new GameImpl(size);
+      test = newGame(size);
       // Creates an array of invalid positions
       int[][] invalidPos = {
         {-1, 0}, {size, 0}, {size + 1, 0},
@@ -211,14 +288,14 @@ public class GameTest extends Test {
       }
 
       // The grid should be updated correctly to reflect the move.
-      test = new GameImpl(size);
+      test = newGame(size);
       test.makeMove(new MoveImpl(0, 0));
       test.makeMove(new MoveImpl(size - 1, size - 1));
       expect(PieceColour.WHITE, test.getGrid().getPiece(0, 0));
       expect(PieceColour.BLACK, test.getGrid().getPiece(size - 1, size - 1));
 
       // The current player should be changed to the other colour after the move is made.
-      test = new GameImpl(size);
+      test = newGame(size);
       test.makeMove(new MoveImpl(0, 0));
       expect(PieceColour.BLACK, test.currentPlayer());
       test.makeMove(new MoveImpl(size - 1, size - 1));
@@ -226,7 +303,7 @@ public class GameTest extends Test {
 
       // Section 2.5 - Tests for getGrid() and copy() methods
       
-      test = new GameImpl(size);
+      test = newGame(size);
       test.makeMove(new MoveImpl(0, 0));
       test.makeMove(new MoveImpl(size - 1, size - 1));
       Game copy = test.copy();
@@ -248,12 +325,186 @@ public class GameTest extends Test {
       expect(test.currentPlayer(), copy.currentPlayer());
 
       // The copy should be independent of the original.
-      test = new GameImpl(size);
+      test = newGame(size);
       copy = test.copy();
       copy.makeMove(new MoveImpl(0, 0));
       copy.makeMove(new MoveImpl(size - 1, size - 1));
       expect(PieceColour.NONE, test.getGrid().getPiece(0, 0));
       expect(PieceColour.NONE, test.getGrid().getPiece(size - 1, size - 1));
+
+      // Section 2.6 - Tests for unmakeMove() method
+
+      // Throws exception if there is no move to undo
+      test = newGame(size);
+      caught = false;
+      try {
+        test.unmakeMove();
+      } catch (IllegalStateException e) {
+        caught = true;
+      }
+      expect(true, caught);
+
+      // Undoing a move should clear its position and give the turn back to the player who made it.
+      test.makeMove(new MoveImpl(0, 0));
+      test.makeMove(new MoveImpl(size - 1, size - 1));
+      test.unmakeMove();
+      expect(PieceColour.NONE, test.getGrid().getPiece(size - 1, size - 1));
+      expect(PieceColour.WHITE, test.getGrid().getPiece(0, 0));
+      expect(PieceColour.BLACK, test.currentPlayer());
+      expect(size * size - 1, test.getMoves().size());
+
+      // Undoing a winning move should make the game ongoing again.
+      test = newGame(size);
+      for (int i = 0; i < size - 1; i++)
+        for (int j = 0; j < 2; j++)
+          test.makeMove(new MoveImpl(i, j));
+      test.makeMove(new MoveImpl(size - 1, 0));
+      expect(PieceColour.WHITE, test.winner());
+      test.unmakeMove();
+      expect(false, test.isOver());
+      expect(PieceColour.NONE, test.winner());
+      expect(PieceColour.WHITE, test.currentPlayer());
+      test.makeMove(new MoveImpl(size - 1, 1));
+      expect(PieceColour.BLACK, test.currentPlayer());
+
+      // Section 2.7 - Tests for getHash(), equals() and hashCode() methods
+
+      // The same pieces placed in a different order should give an equal game with the same hash.
+      test = newGame(size);
+      GameImpl other = newGame(size);
+      expect(test.getHash(), other.getHash());
+      test.makeMove(new MoveImpl(0, 0));
+      test.makeMove(new MoveImpl(size - 1, 0));
+      test.makeMove(new MoveImpl(0, size - 1));
+      other.makeMove(new MoveImpl(0, size - 1));
+      other.makeMove(new MoveImpl(size - 1, 0));
+      other.makeMove(new MoveImpl(0, 0));
+      expect(test.getHash(), other.getHash());
+      expect(true, test.equals(other));
+      expect(test.hashCode(), other.hashCode());
+      expect(true, test.equals(test.copy()));
+
+      // The same pieces with a different player to move should not be equal.
+      other.unmakeMove();
+      expect(false, test.equals(other));
+      expect(false, test.getHash() == other.getHash());
+
+      // Undoing a move should restore the hash.
+      long hash = other.getHash();
+      other.makeMove(new MoveImpl(0, 0));
+      expect(test.getHash(), other.getHash());
+      other.unmakeMove();
+      expect(hash, other.getHash());
+
+      // Section 2.8 - Tests for getGridView() method
+
+      // The view should show the pieces of the game, including moves made and undone after it was obtained.
+      test = newGame(size);
+      Grid view = test.getGridView();
+      expect(size, view.getSize());
+      expect(PieceColour.NONE, view.getPiece(0, 0));
+      test.makeMove(new MoveImpl(0, 0));
+      expect(PieceColour.WHITE, view.getPiece(0, 0));
+      test.unmakeMove();
+      expect(PieceColour.NONE, view.getPiece(0, 0));
+
+      // Setting a piece through the view should be rejected and leave the game unchanged.
+      caught = false;
+      try {
+        view.setPiece(0, 0, PieceColour.BLACK);
+      } catch (UnsupportedOperationException e) {
+        caught = true;
+      }
+      expect(true, caught);
+      expect(PieceColour.NONE, test.getGrid().getPiece(0, 0));
+
+      // A copy of the view should be a normal grid, independent of the game.
+      Grid viewCopy = view.copy();
+      viewCopy.setPiece(0, 0, PieceColour.BLACK);
+      expect(PieceColour.NONE, view.getPiece(0, 0));
+
+      // The copy of a game should have its own view.
+      test.makeMove(new MoveImpl(0, 0));
+      GameImpl gameCopy = (GameImpl) test.copy();
+      gameCopy.makeMove(new MoveImpl(size - 1, size - 1));
+      expect(PieceColour.BLACK, gameCopy.getGridView().getPiece(size - 1, size - 1));
+      expect(PieceColour.NONE, view.getPiece(size - 1, size - 1));
+
+      // Section 2.9 - Tests for getMoves(MoveList) and makeMove(int) methods
+
+      // The positions listed should be the moves of getMoves(), in the same order.
+      test = newGame(size);
+      test.makeMove(new MoveImpl(0, 0));
+      MoveList positions = new MoveList(1);
+      positions.add(-1); // The list should be cleared before it is filled
+      test.getMoves(positions);
+      Collection<Move> moves = test.getMoves();
+      expect(moves.size(), positions.size());
+      int index = 0;
+      boolean sameOrder = true;
+      for (Move move : moves)
+        sameOrder &= positions.get(index++) == move.getRow() * size + move.getCol();
+      expect(true, sameOrder);
+
+      // Making a move by its position should be the same as making it as a Move.
+      GameImpl byMove = newGame(size);
+      byMove.makeMove(new MoveImpl(0, 0));
+      byMove.makeMove(new MoveImpl(size - 1, 1));
+      test.makeMove((size - 1) * size + 1);
+      expect(true, test.equals(byMove));
+      expect(PieceColour.BLACK, test.getGrid().getPiece(size - 1, 1));
+
+      // A position which is occupied or out of bounds should be rejected.
+      for (int position : new int[] { 0, -1, size * size }) {
+        caught = false;
+        try {
+          test.makeMove(position);
+        } catch (IllegalArgumentException e) {
+          caught = true;
+        }
+        expect(true, caught);
+      }
+
+      // Section 2.10 - Tests for getCanonicalHash() and getCanonicalSymmetry() methods
+
+      // Every rotation and reflection of a position should have the same canonical hash, which Symmetry also computes from the grid.
+      Symmetry symmetry = Symmetry.forSize(size);
+      // White's two pieces are in opposite corners, so the game is not over on any size of grid.
+      int[] played = { 0, 1, size * size - 1 };
+      test = newGame(size);
+      for (int position : played)
+        test.makeMove(position);
+      expect(Symmetry.canonicalHash(test.getGridView(), test.currentPlayer()), test.getCanonicalHash());
+      boolean sameCanonical = true;
+      for (int s = 0; s < Symmetry.COUNT; s++) {
+        GameImpl image = newGame(size);
+        for (int position : played)
+          image.makeMove(symmetry.map(s, position));
+        sameCanonical &= image.getCanonicalHash() == test.getCanonicalHash();
+        sameCanonical &= symmetry.unmap(s, symmetry.map(s, 1)) == 1;
+      }
+      expect(true, sameCanonical);
+
+      // The canonical symmetry should turn the position into the image whose hash is the canonical hash.
+      int canonical = test.getCanonicalSymmetry();
+      expect(test.getCanonicalHash(), symmetry.hash(test.getGridView(), test.currentPlayer(), canonical));
+
+      // Undoing a move should restore the canonical hash, and a different player to move should change it.
+      hash = test.getCanonicalHash();
+      test.makeMove((size - 1) * size);
+      test.unmakeMove();
+      expect(hash, test.getCanonicalHash());
+      test.unmakeMove();
+      expect(false, hash == test.getCanonicalHash());
+
+      // The hashes of the images are only computed on the first call, so a game which has not been asked for them yet
+      // (and a copy of it) should give the same canonical hash as one that has kept them up to date.
+      GameImpl fresh = newGame(size);
+      fresh.makeMove(0);
+      GameImpl freshCopy = (GameImpl) fresh.copy();
+      freshCopy.makeMove(1);
+      freshCopy.makeMove(size * size - 1);
+      expect(hash, freshCopy.getCanonicalHash());
     }
 
     // Section 3 - Tests for specific sizes and moves
@@ -261,14 +512,14 @@ public class GameTest extends Test {
     // Negative size for constructor
     caught = false;
     try {
-      new GameImpl(-1);
+      newGame(-1);
     } catch (IllegalArgumentException e) {
       caught = true;
     }
     expect(true, caught);
 
     // Tests for a grid in size 1
-    GameImpl test = new GameImpl(1);
+    GameImpl test = newGame(1);
     expect(1, test.getGrid().getSize());
     expect(PieceColour.NONE, test.getGrid().getPiece(0, 0));
     expect(PieceColour.WHITE, test.currentPlayer());
@@ -284,7 +535,7 @@ public class GameTest extends Test {
     expect(PieceColour.WHITE, test.winner());
 
     // If the grid is not fully occupied and a player wins by creating a path from the top row to the bottom row, true for isOver() and the winner's colour for winner() should be returned.
-    test = new GameImpl(5);
+    test = newGame(5);
     int[][] topBottom = {
       {2, 2}, {0, 0}, {1, 0}, {0, 4}, {1, 4}, {4, 2}, {2, 0}, {4, 1},
       {3, 0}, {0, 3}, {4, 0}, {3, 2}, {0, 2}, {3, 3}, {3, 4}, {3, 1},
@@ -300,7 +551,7 @@ public class GameTest extends Test {
     expect(true, test.isOver());
     expect(PieceColour.BLACK, test.winner());
     
-    test = new GameImpl(5);
+    test = newGame(5);
     int[][] topBottom2 = {
       {1, 4}, {0, 0}, {4, 1}, {3, 0}, {1, 0}, {2, 2}, {0, 2}, {3, 2},
       {0, 3}, {0, 1}, {1, 2}, {1, 1}, {2, 3}, {2, 1}, {1, 3}, {3, 1},
@@ -317,7 +568,7 @@ public class GameTest extends Test {
     expect(PieceColour.BLACK, test.winner());
 
     // If the grid is not fully occupied and a player wins by creating a path from the left column to the right column, true for isOver() and the winner's colour for winner() should be returned.
-    test = new GameImpl(5);
+    test = newGame(5);
     int[][] leftRight = {
       {1, 4}, {4, 4}, {1, 3}, {4, 3}, {1, 2}, {3, 2}, {2, 4}, {2, 1},
       {1, 1}, {1, 0}, {3, 4}, {0, 0}, {0, 4}, {3, 1}, {2, 2}, {3, 3},
@@ -333,7 +584,7 @@ public class GameTest extends Test {
     expect(true, test.isOver());
     expect(PieceColour.BLACK, test.winner());
     
-    test = new GameImpl(5);
+    test = newGame(5);
     int[][] leftRight2 = {
       {4, 0}, {0, 0}, {4, 1}, {1, 1}, {4, 2}, {2, 2}, {4, 3}, {3, 3},
       {3, 2}, {4, 4}, {2, 1}, {3, 4}, {1, 0}, {2, 3}, {0, 4}, {1, 2},
@@ -350,7 +601,7 @@ public class GameTest extends Test {
     expect(PieceColour.BLACK, test.winner());
 
     // If the grid is not fully occupied and a player wins by occupying a row and a column at the same time, true for isOver() and the winner's colour for winner() should be returned.
-    test = new GameImpl(4);
+    test = newGame(4);
     int[][] rowAndCol = {
       {0, 1}, {0, 2}, {1, 1}, {1, 2}, {2, 0}, {0, 3}, {2, 3}, {1, 0},
       {2, 2}, {0, 0}, {3, 1}, {3, 2}
@@ -365,7 +616,7 @@ public class GameTest extends Test {
     expect(true, test.isOver());
     expect(PieceColour.WHITE, test.winner());
 
-    test = new GameImpl(5);
+    test = newGame(5);
     int[][] rowAndCol2 = {
       {0, 4}, {2, 2}, {1, 4}, {2, 1}, {2, 4}, {3, 2}, {4, 2}, {3, 3},
       {4, 3}, {1, 1}, {3, 4}, {2, 0}, {4, 0}, {3, 0}, {4, 1}, {0, 0}
@@ -381,7 +632,7 @@ public class GameTest extends Test {
     expect(PieceColour.WHITE, test.winner());
 
     // If the grid is not fully occupied and a player wins by creating a path from the top row to the bottom row and another one from the left column to the right column at the same time, true for isOver() and the winner's colour for winner() should be returned.
-    test = new GameImpl(4);
+    test = newGame(4);
     int[][] twoPath = {
       {0, 1}, {0, 0}, {0, 2}, {1, 0}, {0, 3}, {1, 2}, {1, 1}, {3, 1},
       {2, 0}, {3, 0}, {2, 2}, {1, 3}, {3, 2}, {2, 3}
@@ -397,7 +648,7 @@ public class GameTest extends Test {
     expect(PieceColour.WHITE, test.winner());
 
     // If a player wins by the last move upon which the grid is fully occupied, true for isOver() and the winner's colour for winner() should be returned.
-    test = new GameImpl(3);
+    test = newGame(3);
     int[][] winAtLast = {
       {0, 0}, {0, 1}, {1, 1}, {1, 2}, {1, 0}, {0, 2}, {2, 2}, {2, 1}
     };
@@ -410,7 +661,5 @@ public class GameTest extends Test {
     test.makeMove(new MoveImpl(2, 0));
     expect(true, test.isOver());
     expect(PieceColour.WHITE, test.winner());
-
-    checkAllTestsPassed();
   }
 }
\ No newline at end of file
@@ -1,12 +1,131 @@
 package game.tests;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import game.BitGridImpl;
 import game.Grid;
 import game.GridImpl;
-import game.PieceColour;;
+import game.OffHeapGrid;
+import game.PieceColour;
+import game.SparseGridImpl;
 
 public class GridTest extends Test {
-    public static void main(String[] args) {
-        Grid grid = new GridImpl(5); //size=5x5
+    public static void main(String[] args) throws IOException {
+        boolean caught;
+        //every test is run on all the Grid implementations
+        testGrid(new GridImpl(5)); //size=5x5
+        testGrid(new BitGridImpl(5));
+        testGrid(new OffHeapGrid(5));
+        testGrid(new SparseGridImpl(5));
+
+        //a grid larger than 8x8 spans several 64-bit words in BitGridImpl
+        Grid large = new BitGridImpl(12);
+        large.setPiece(5, 4, PieceColour.BLACK); //bit 64, the first bit of the second word
+        large.setPiece(11, 11, PieceColour.WHITE); //the last bit
+        expect(PieceColour.BLACK, large.getPiece(5, 4));
+        expect(PieceColour.NONE, large.getPiece(5, 3));
+        expect(PieceColour.WHITE, large.getPiece(11, 11));
+        large.setPiece(5, 4, PieceColour.NONE); //clearing a position
+        expect(PieceColour.NONE, large.getPiece(5, 4));
+
+        //isEmpty() checks the storage of the grid itself, and a grid whose pieces have all been cleared is empty again
+        BitGridImpl bits = new BitGridImpl(12);
+        expect(true, bits.isEmpty());
+        bits.setPiece(11, 11, PieceColour.BLACK);
+        expect(false, bits.isEmpty());
+        bits.setPiece(11, 11, PieceColour.NONE);
+        expect(true, bits.isEmpty());
+        OffHeapGrid offHeapBytes = new OffHeapGrid(11); //31 bytes, so the last 7 are checked one at a time
+        expect(true, offHeapBytes.isEmpty());
+        offHeapBytes.setPiece(10, 10, PieceColour.WHITE);
+        expect(false, offHeapBytes.isEmpty());
+        offHeapBytes.setPiece(10, 10, PieceColour.NONE);
+        offHeapBytes.setPiece(0, 1, PieceColour.BLACK);
+        expect(false, offHeapBytes.isEmpty());
+        SparseGridImpl sparseEmpty = new SparseGridImpl(1000000);
+        expect(true, sparseEmpty.isEmpty());
+        sparseEmpty.setPiece(700000, 3, PieceColour.WHITE);
+        expect(false, sparseEmpty.isEmpty());
+        sparseEmpty.setPiece(700000, 3, PieceColour.NONE); //the tile stays allocated, but holds no piece
+        expect(true, sparseEmpty.isEmpty());
+
+        //a sparse grid only allocates the 64x64 tiles that hold pieces, so a huge grid costs little
+        SparseGridImpl sparse = new SparseGridImpl(1000000);
+        expect(0, sparse.getTileCount());
+        sparse.setPiece(999999, 999999, PieceColour.WHITE);
+        sparse.setPiece(64, 63, PieceColour.BLACK);
+        sparse.setPiece(64, 62, PieceColour.NONE); //clearing an empty position allocates nothing
+        sparse.setPiece(500000, 500000, PieceColour.NONE);
+        expect(2, sparse.getTileCount());
+        expect(PieceColour.WHITE, sparse.getPiece(999999, 999999));
+        expect(PieceColour.BLACK, sparse.getPiece(64, 63));
+        expect(PieceColour.NONE, sparse.getPiece(123456, 654321));
+
+        //copies share tiles until one of them changes a shared tile
+        SparseGridImpl sparseCopy = (SparseGridImpl) sparse.copy();
+        sparseCopy.setPiece(999999, 999998, PieceColour.BLACK);
+        sparse.setPiece(64, 63, PieceColour.WHITE);
+        expect(PieceColour.NONE, sparse.getPiece(999999, 999998));
+        expect(PieceColour.BLACK, sparseCopy.getPiece(999999, 999998));
+        expect(PieceColour.BLACK, sparseCopy.getPiece(64, 63));
+        expect(PieceColour.WHITE, sparse.getPiece(64, 63));
+        SparseGridImpl secondCopy = (SparseGridImpl) sparseCopy.copy();
+        sparseCopy.setPiece(0, 0, PieceColour.WHITE);
+        expect(PieceColour.NONE, secondCopy.getPiece(0, 0));
+
+        //forEachPiece() visits the pieces row by row, skipping the missing tiles
+        StringBuilder visited = new StringBuilder();
+        sparseCopy.forEachPiece((row, col, piece) -> visited.append(row + "," + col + "," + piece + ";"));
+        expect("0,0,WHITE;64,63,BLACK;999999,999998,BLACK;999999,999999,WHITE;", visited.toString());
+
+        //an off-heap grid packs 4 positions into a byte, so neighbouring positions must not affect each other
+        OffHeapGrid offHeap = new OffHeapGrid(3);
+        offHeap.setPiece(0, 1, PieceColour.WHITE);
+        offHeap.setPiece(0, 2, PieceColour.BLACK);
+        offHeap.setPiece(1, 0, PieceColour.WHITE); //cell 3, the last position of the first byte
+        offHeap.setPiece(1, 1, PieceColour.BLACK); //cell 4, the first position of the second byte
+        offHeap.setPiece(0, 2, PieceColour.NONE);
+        expect(".W.\nWB.\n...\n", offHeap.toString());
+
+        //a closed grid cannot be used any more
+        offHeap.close();
+        caught = false;
+        try {
+            offHeap.getPiece(0, 0);
+        } catch (IllegalStateException e) {
+            caught = true;
+        }
+        expect(true, caught);
+        offHeap.close(); //closing twice does nothing
+
+        //a grid mapped to a file keeps its pieces in the file, and a new mapping of the file reads them back
+        Path file = Files.createTempFile("grid", ".bin");
+        try {
+            try (OffHeapGrid mapped = OffHeapGrid.mapped(file, 7)) {
+                expect(PieceColour.NONE, mapped.getPiece(3, 3));
+                mapped.setPiece(3, 3, PieceColour.BLACK);
+                mapped.setPiece(6, 6, PieceColour.WHITE);
+                mapped.force();
+            }
+            expect(13L, Files.size(file)); //49 positions at 4 per byte
+            try (OffHeapGrid mapped = OffHeapGrid.mapped(file, 7)) {
+                expect(PieceColour.BLACK, mapped.getPiece(3, 3));
+                expect(PieceColour.WHITE, mapped.getPiece(6, 6));
+                Grid copy = mapped.copy(); //a copy is held in memory, apart from the file
+                copy.setPiece(0, 0, PieceColour.WHITE);
+                expect(PieceColour.NONE, mapped.getPiece(0, 0));
+                expect(mapped.toString().substring(1), copy.toString().substring(1));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        checkAllTestsPassed();
+    }
+
+    private static void testGrid(Grid grid) {
         expect(5, grid.getSize());
         expect(PieceColour.NONE, grid.getPiece(0, 0)); //return colour
         expect(PieceColour.NONE, grid.getPiece(4, 4));
@@ -49,9 +168,5 @@ public class GridTest extends Test {
             caught = true;
         }
         expect(true, caught);
-
-        checkAllTestsPassed();
-        
-
     }
 }
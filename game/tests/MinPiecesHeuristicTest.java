@@ -0,0 +1,92 @@
+package game.tests;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import ai.MinPiecesHeuristic;
+import game.*;
+
+public class MinPiecesHeuristicTest extends Test {
+    public static void main(String[] args) {
+        //the heuristic gives the same scores as the Dijkstra search it replaced,
+        //both below 64x64, where it runs a 0-1 breadth-first search, and from 64x64 up, where it runs relaxation sweeps
+        Random random = new Random(16);
+        MinPiecesHeuristic heuristic = new MinPiecesHeuristic();
+        int scored = 0, wrongScores = 0;
+        for (int size : new int[] { 1, 2, 3, 5, 9, 63, 64, 65, 70 }) {
+            for (int i = 0; i < 12; i++) {
+                GameImpl game = randomGame(random, size, random.nextDouble());
+                scored++;
+                if (heuristic.score(game) != dijkstraScore(game))
+                    wrongScores++;
+            }
+        }
+        expect(108, scored);
+        expect(0, wrongScores);
+
+        //an empty grid needs a whole row or column
+        expect(-9, heuristic.score(new GameImpl(9)));
+        expect(-70, heuristic.score(new GameImpl(70)));
+
+        checkAllTestsPassed();
+    }
+
+    //plays random moves until about the given fraction of the grid is full, skipping any move which would end the game
+    private static GameImpl randomGame(Random random, int size, double fill) {
+        GameImpl game = new GameImpl(size);
+        MoveList moves = new MoveList(size * size);
+        int target = (int) (fill * size * size);
+        for (int placed = 0; placed < target; placed++) {
+            game.getMoves(moves);
+            if (moves.size() == 0)
+                break;
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            if (game.isOver())
+                game.unmakeMove();
+        }
+        return game;
+    }
+
+    //the scores of the Dijkstra search which MinPiecesHeuristic replaced, kept here as the reference
+    private static int dijkstraScore(Game game) {
+        Grid grid = game.getGrid();
+        PieceColour player = game.currentPlayer();
+        return -Math.min(dijkstra(grid, player, 0, -1, grid.getSize() - 1, -1),
+                dijkstra(grid, player, -1, 0, -1, grid.getSize() - 1));
+    }
+
+    //locations with the same colour as ours have weight 0, empty locations have weight 1
+    //and locations with the other colour are impassable
+    private static int dijkstra(Grid grid, PieceColour piece, int startr, int startc, int endr, int endc) {
+        int size = grid.getSize();
+        PriorityQueue<int[]> queue = new PriorityQueue<>(Comparator.comparingInt((int[] position) -> position[2]));
+        boolean[][] visited = new boolean[size][size];
+        for (int i = 0; i < size; ++i) {
+            if (startr != -1)
+                queue.offer(new int[] { startr, i, grid.getPiece(startr, i) == piece ? 0 : 1 });
+            if (startc != -1)
+                queue.offer(new int[] { i, startc, grid.getPiece(i, startc) == piece ? 0 : 1 });
+        }
+        int[][] dirs = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+        while (!queue.isEmpty()) {
+            int[] pos = queue.poll();
+            if (visited[pos[0]][pos[1]])
+                continue;
+            visited[pos[0]][pos[1]] = true;
+            if (pos[0] == endr || pos[1] == endc)
+                return pos[2];
+            PieceColour colour = grid.getPiece(pos[0], pos[1]);
+            for (int[] dir : dirs) {
+                int row = pos[0] + dir[0], col = pos[1] + dir[1];
+                if (row < 0 || row >= size || col < 0 || col >= size || visited[row][col])
+                    continue;
+                if (colour == piece)
+                    queue.offer(new int[] { row, col, pos[2] });
+                else if (colour == PieceColour.NONE)
+                    queue.offer(new int[] { row, col, pos[2] + 1 });
+            }
+        }
+        return size * size;
+    }
+}
@@ -1,7 +1,12 @@
 package game.tests;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
 import game.Move;
 import game.MoveImpl;
+import game.MoveList;
 
 public class MoveTest extends Test {
     public static void main(String[] args) {
@@ -25,6 +30,60 @@ public class MoveTest extends Test {
         expect(4, move.getCol());
         expect("(4,4)", move.toString());
 
+        //moves are compared by value, and MoveImpl.of() returns the same instance for the same position of a grid size
+        expect(new MoveImpl(2, 3), new MoveImpl(2, 3));
+        expect(new MoveImpl(2, 3).hashCode(), new MoveImpl(2, 3).hashCode());
+        expect(false, new MoveImpl(2, 3).equals(new MoveImpl(3, 2)));
+        expect(false, new MoveImpl(0, 31).hashCode() == new MoveImpl(1, 0).hashCode());
+        expect(false, new MoveImpl(0, 46337).hashCode() == new MoveImpl(1, 0).hashCode());
+        expect(new MoveImpl(2, 3), MoveImpl.of(5, 2, 3));
+        expect(true, MoveImpl.of(5, 2, 3) == MoveImpl.of(5, 13));
+        expect(false, MoveImpl.of(5, 2, 3) == MoveImpl.of(6, 2, 3));
+        expect(1, new HashSet<>(List.of(MoveImpl.of(5, 0, 1), new MoveImpl(0, 1))).size());
+        //only small grids share their moves; a large grid gets a new, equal move each time
+        expect(MoveImpl.of(1000, 999, 998), MoveImpl.of(1000, 999 * 1000 + 998));
+        expect(false, MoveImpl.of(1000, 999, 998) == MoveImpl.of(1000, 999, 998));
+        boolean caught = false;
+        try {
+            MoveImpl.of(5, 5, 0);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        expect(true, caught);
+
+        //a MoveList holds positions (row * size + col) and grows as moves are added
+        MoveList list = new MoveList(2);
+        expect(true, list.isEmpty());
+        for (int position = 0; position < 40; position += 2)
+            list.add(position);
+        expect(20, list.size());
+        expect(6, list.get(3));
+        list.set(3, 7);
+        expect(7, list.get(3));
+
+        PrimitiveIterator.OfInt iterator = list.iterator();
+        int sum = 0;
+        while (iterator.hasNext())
+            sum += iterator.nextInt();
+        expect(381, sum); //0 + 2 + ... + 38 = 380, plus 1 for the changed move
+        expect(381, list.stream().sum());
+        expect(381, list.stream().parallel().sum());
+        expect(20L, list.spliterator().getExactSizeIfKnown());
+
+        caught = false;
+        try {
+            list.get(20);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        expect(true, caught);
+
+        list.clear();
+        expect(0, list.size());
+        expect("[]", list.toString());
+        list.add(5);
+        expect("[5]", list.toString());
+
         checkAllTestsPassed();
     }
 }
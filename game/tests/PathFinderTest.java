@@ -0,0 +1,234 @@
+package game.tests;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import game.BitGridImpl;
+import game.Grid;
+import game.GridImpl;
+import game.OffHeapGrid;
+import game.PathFinder;
+import game.PieceColour;
+import game.ReadOnlyGrid;
+import game.SparseGridImpl;
+
+public class PathFinderTest extends Test {
+    public static void main(String[] args) {
+        //a straight column of white from top to bottom
+        Grid grid = new GridImpl(4);
+        for (int row = 0; row < 4; row++)
+            grid.setPiece(row, 2, PieceColour.WHITE);
+        expect(true, PathFinder.topToBottom(grid, PieceColour.WHITE));
+        expect(false, PathFinder.leftToRight(grid, PieceColour.WHITE));
+        expect(false, PathFinder.topToBottom(grid, PieceColour.BLACK));
+
+        //a winding path, which has to go back up to reach the right column
+        grid = new GridImpl(5);
+        int[][] winding = { {0, 0}, {1, 0}, {2, 0}, {2, 1}, {2, 2}, {1, 2}, {0, 2}, {0, 3}, {0, 4}, {1, 4}, {2, 4}, {3, 4}, {4, 4} };
+        for (int[] position : winding)
+            grid.setPiece(position[0], position[1], PieceColour.BLACK);
+        expect(true, PathFinder.topToBottom(grid, PieceColour.BLACK));
+        expect(true, PathFinder.leftToRight(grid, PieceColour.BLACK));
+        grid.setPiece(3, 4, PieceColour.WHITE); //cutting the path just above the bottom row
+        expect(false, PathFinder.topToBottom(grid, PieceColour.BLACK));
+        grid.setPiece(0, 3, PieceColour.WHITE); //cutting it again between the two halves
+        expect(false, PathFinder.leftToRight(grid, PieceColour.BLACK));
+
+        //diagonal neighbours are not connected
+        grid = new GridImpl(3);
+        for (int i = 0; i < 3; i++)
+            grid.setPiece(i, i, PieceColour.WHITE);
+        expect(false, PathFinder.topToBottom(grid, PieceColour.WHITE));
+        expect(false, PathFinder.leftToRight(grid, PieceColour.WHITE));
+
+        //on a 1x1 grid the first row is also the last row
+        grid = new GridImpl(1);
+        expect(false, PathFinder.topToBottom(grid, PieceColour.WHITE));
+        grid.setPiece(0, 0, PieceColour.WHITE);
+        expect(true, PathFinder.topToBottom(grid, PieceColour.WHITE));
+        expect(true, PathFinder.leftToRight(grid, PieceColour.WHITE));
+
+        //connections() labels the components of both colours at once
+        grid = new GridImpl(3);
+        grid.setPiece(0, 0, PieceColour.WHITE);
+        grid.setPiece(1, 0, PieceColour.WHITE);
+        grid.setPiece(2, 0, PieceColour.WHITE);
+        grid.setPiece(0, 1, PieceColour.BLACK);
+        grid.setPiece(0, 2, PieceColour.BLACK);
+        grid.setPiece(2, 2, PieceColour.BLACK);
+        PathFinder.Connections connections = PathFinder.connections(grid);
+        expect(3, connections.getComponentCount());
+        expect(-1, connections.getComponent(1, 1));
+        expect(connections.getComponent(0, 0), connections.getComponent(2, 0));
+        expect(PieceColour.WHITE, connections.getColour(connections.getComponent(0, 0)));
+        expect(PathFinder.TOP | PathFinder.BOTTOM | PathFinder.LEFT, connections.getEdges(connections.getComponent(1, 0)));
+        expect(PathFinder.TOP | PathFinder.RIGHT, connections.getEdges(connections.getComponent(0, 2)));
+        expect(false, connections.getComponent(0, 2) == connections.getComponent(2, 2));
+        expect(true, connections.topToBottom(PieceColour.WHITE));
+        expect(false, connections.leftToRight(PieceColour.WHITE));
+        expect(false, connections.topToBottom(PieceColour.BLACK));
+        expect(false, connections.leftToRight(PieceColour.BLACK));
+
+        //the bitset search on grids wider than one 64-bit word, with a path that crosses between words twice
+        //and has to turn back up to get around a wall
+        grid = new GridImpl(70);
+        for (int col = 0; col < 70; col++)
+            grid.setPiece(1, col, PieceColour.WHITE);
+        for (int col = 0; col < 70; col++)
+            grid.setPiece(3, col, PieceColour.WHITE);
+        grid.setPiece(0, 60, PieceColour.WHITE);
+        grid.setPiece(2, 69, PieceColour.WHITE);
+        for (int row = 4; row < 70; row++)
+            grid.setPiece(row, 2, PieceColour.WHITE);
+        expect(true, PathFinder.topToBottom(grid, PieceColour.WHITE, PathFinder.Strategy.BITSET));
+        expect(true, PathFinder.leftToRight(grid, PieceColour.WHITE, PathFinder.Strategy.BITSET));
+        grid.setPiece(2, 69, PieceColour.BLACK);
+        expect(false, PathFinder.topToBottom(grid, PieceColour.WHITE, PathFinder.Strategy.BITSET));
+        expect(false, PathFinder.topToBottom(grid, PieceColour.WHITE, PathFinder.Strategy.BFS));
+
+        //the results on random grids of every size should be the same as those of a plain flood fill
+        //searches of different sizes are mixed, so the reused scratch arrays are also tested
+        //half of the grids are BitGridImpl, whose rows the bitset search copies a word at a time,
+        //and some of the others are OffHeapGrid, whose rows it copies a byte at a time, or SparseGridImpl
+        Random random = new Random(13);
+        int mismatches = 0;
+        for (int test = 0; test < 5000; test++) {
+            int size = 1 + random.nextInt(test % 10 == 0 ? 140 : 15);
+            grid = test % 2 == 1 ? new BitGridImpl(size) : test % 6 == 2 ? new OffHeapGrid(size)
+                    : test % 6 == 4 ? new SparseGridImpl(size) : new GridImpl(size);
+            double fill = random.nextDouble();
+            for (int row = 0; row < size; row++)
+                for (int col = 0; col < size; col++)
+                    if (random.nextDouble() < fill)
+                        grid.setPiece(row, col, random.nextBoolean() ? PieceColour.WHITE : PieceColour.BLACK);
+            if (test % 4 == 3) //a view of a BitGridImpl, which the bitset search also reads a word at a time
+                grid = new ReadOnlyGrid(grid);
+            connections = PathFinder.connections(grid);
+            for (PieceColour player : new PieceColour[] { PieceColour.WHITE, PieceColour.BLACK }) {
+                boolean topToBottom = floodFill(grid, player, true), leftToRight = floodFill(grid, player, false);
+                if (PathFinder.topToBottom(grid, player) != topToBottom || connections.topToBottom(player) != topToBottom)
+                    mismatches++;
+                if (PathFinder.leftToRight(grid, player) != leftToRight || connections.leftToRight(player) != leftToRight)
+                    mismatches++;
+                if (PathFinder.topToBottom(grid, player, PathFinder.Strategy.BITSET) != topToBottom)
+                    mismatches++;
+                if (PathFinder.leftToRight(grid, player, PathFinder.Strategy.BITSET) != leftToRight)
+                    mismatches++;
+                if (PathFinder.topToBottom(grid, player, PathFinder.Strategy.PARALLEL) != topToBottom
+                        || PathFinder.leftToRight(grid, player, PathFinder.Strategy.PARALLEL) != leftToRight)
+                    mismatches++;
+            }
+            if (!checkLabels(grid, connections))
+                mismatches++;
+        }
+        expect(0, mismatches);
+
+        //the parallel labelling splits large grids into strips of at least 64 rows, about 4 per thread,
+        //so a pool of 4 threads labels these grids in up to 16 strips, and paths that wind across the boundaries are joined
+        ForkJoinPool pool = new ForkJoinPool(4);
+        mismatches = 0;
+        int withPaths = 0;
+        for (int test = 0; test < 40; test++) {
+            int size = 64 + random.nextInt(1000);
+            grid = test % 2 == 0 ? new GridImpl(size) : new BitGridImpl(size);
+            //one colour fills around 60% of the grid, the density at which paths start to appear, and the other some of the rest
+            double fill = 0.5 + random.nextDouble() * 0.2;
+            PieceColour main = test % 4 < 2 ? PieceColour.WHITE : PieceColour.BLACK;
+            PieceColour other = main == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    double x = random.nextDouble();
+                    if (x < fill)
+                        grid.setPiece(row, col, main);
+                    else if (x < fill + 0.2)
+                        grid.setPiece(row, col, other);
+                }
+            }
+            connections = PathFinder.connections(grid);
+            int expected = (connections.topToBottom(PieceColour.WHITE) ? PathFinder.WHITE_TOP_TO_BOTTOM : 0)
+                    | (connections.leftToRight(PieceColour.WHITE) ? PathFinder.WHITE_LEFT_TO_RIGHT : 0)
+                    | (connections.topToBottom(PieceColour.BLACK) ? PathFinder.BLACK_TOP_TO_BOTTOM : 0)
+                    | (connections.leftToRight(PieceColour.BLACK) ? PathFinder.BLACK_LEFT_TO_RIGHT : 0);
+            if (PathFinder.paths(grid, pool) != expected)
+                mismatches++;
+            if (expected != 0)
+                withPaths++;
+        }
+        pool.shutdown();
+        expect(0, mismatches);
+        expect(true, withPaths > 5 && withPaths < 35); //both kinds of grid are tested
+
+        //a single snake of white that crosses every strip boundary many times
+        grid = new GridImpl(300);
+        for (int row = 0; row < 300; row += 2)
+            for (int col = 0; col < 300; col++)
+                grid.setPiece(row, col, PieceColour.WHITE);
+        for (int row = 1; row < 300; row += 2)
+            grid.setPiece(row, row % 4 == 1 ? 299 : 0, PieceColour.WHITE);
+        pool = new ForkJoinPool(4);
+        expect(PathFinder.WHITE_TOP_TO_BOTTOM | PathFinder.WHITE_LEFT_TO_RIGHT, PathFinder.paths(grid, pool));
+        pool.shutdown();
+
+        checkAllTestsPassed();
+    }
+
+    //checks that neighbours have the same label exactly when they have the same colour,
+    //and that the colours and edge masks of the components match their pieces
+    private static boolean checkLabels(Grid grid, PathFinder.Connections connections) {
+        int size = grid.getSize();
+        int count = connections.getComponentCount();
+        int[] edges = new int[count];
+        boolean[] seen = new boolean[count];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                PieceColour piece = grid.getPiece(row, col);
+                int label = connections.getComponent(row, col);
+                if (piece == PieceColour.NONE) {
+                    if (label != -1)
+                        return false;
+                    continue;
+                }
+                if (label < 0 || label >= count || connections.getColour(label) != piece)
+                    return false;
+                seen[label] = true;
+                edges[label] |= (row == 0 ? PathFinder.TOP : 0) | (row == size - 1 ? PathFinder.BOTTOM : 0)
+                        | (col == 0 ? PathFinder.LEFT : 0) | (col == size - 1 ? PathFinder.RIGHT : 0);
+                if (row > 0 && (grid.getPiece(row - 1, col) == piece) != (connections.getComponent(row - 1, col) == label))
+                    return false;
+                if (col > 0 && (grid.getPiece(row, col - 1) == piece) != (connections.getComponent(row, col - 1) == label))
+                    return false;
+            }
+        }
+        for (int i = 0; i < count; i++)
+            if (!seen[i] || edges[i] != connections.getEdges(i))
+                return false;
+        return true;
+    }
+
+    //a reference search: marks every piece of the player's colour reachable from the first row (or column)
+    //by repeatedly sweeping the grid until nothing changes, then checks the last row (or column)
+    private static boolean floodFill(Grid grid, PieceColour player, boolean rows) {
+        int size = grid.getSize();
+        boolean[][] reached = new boolean[size][size];
+        for (int i = 0; i < size; i++) {
+            int row = rows ? 0 : i, col = rows ? i : 0;
+            reached[row][col] = grid.getPiece(row, col) == player;
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = 0; row < size; row++)
+                for (int col = 0; col < size; col++)
+                    if (!reached[row][col] && grid.getPiece(row, col) == player
+                            && ((row > 0 && reached[row - 1][col]) || (row < size - 1 && reached[row + 1][col])
+                            || (col > 0 && reached[row][col - 1]) || (col < size - 1 && reached[row][col + 1]))) {
+                        reached[row][col] = true;
+                        changed = true;
+                    }
+        }
+        for (int i = 0; i < size; i++)
+            if (rows ? reached[size - 1][i] : reached[i][size - 1])
+                return true;
+        return false;
+    }
+}
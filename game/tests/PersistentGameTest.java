@@ -0,0 +1,93 @@
+package game.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import game.*;
+
+public class PersistentGameTest extends Test {
+    public static void main(String[] args) {
+        //the constructor rejects sizes below 1, the same as GameImpl
+        boolean caught = false;
+        try {
+            new PersistentGame(0);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        expect(true, caught);
+
+        //a move moves the game on to a new state, and the old state is unchanged
+        PersistentGame game = new PersistentGame(3);
+        PersistentGame.State empty = game.getState();
+        game.makeMove(new MoveImpl(1, 1));
+        expect(PieceColour.WHITE, game.getGrid().getPiece(1, 1));
+        expect(PieceColour.NONE, empty.getPiece(1, 1));
+        expect(PieceColour.WHITE, empty.currentPlayer());
+        expect(PieceColour.BLACK, game.currentPlayer());
+        expect(8, game.getMoves().size());
+        expect(9, new PersistentGame(empty).getMoves().size());
+
+        //two branches from the same state do not affect each other
+        PersistentGame.State afterWhite = game.getState();
+        PersistentGame.State left = afterWhite.play(0, 0);
+        PersistentGame.State right = afterWhite.play(0, 2);
+        expect(PieceColour.BLACK, left.getPiece(0, 0));
+        expect(PieceColour.NONE, left.getPiece(0, 2));
+        expect(PieceColour.BLACK, right.getPiece(0, 2));
+        expect(PieceColour.NONE, right.getPiece(0, 0));
+        expect(".B.\n.W.\n...\n", afterWhite.play(0, 1).toString());
+
+        //a copy starts from the same state, and moves on the copy do not change the original
+        Game copy = game.copy();
+        copy.makeMove(new MoveImpl(2, 2));
+        expect(PieceColour.BLACK, copy.getGrid().getPiece(2, 2));
+        expect(PieceColour.NONE, game.getGrid().getPiece(2, 2));
+
+        //the state and the grid from getGrid() cannot be used to change the game
+        caught = false;
+        try {
+            game.getState().setPiece(0, 0, PieceColour.WHITE);
+        } catch (UnsupportedOperationException e) {
+            caught = true;
+        }
+        expect(true, caught);
+        Grid grid = game.getGrid();
+        grid.setPiece(0, 0, PieceColour.BLACK);
+        expect(PieceColour.NONE, game.getGrid().getPiece(0, 0));
+
+        //occupied and out of bounds positions are rejected
+        for (int[] position : new int[][] { {1, 1}, {-1, 0}, {0, 3} }) {
+            caught = false;
+            try {
+                game.makeMove(new MoveImpl(position[0], position[1]));
+            } catch (IllegalArgumentException e) {
+                caught = true;
+            }
+            expect(true, caught);
+        }
+
+        //random games should give the same results as GameImpl after every move
+        Random random = new Random(19);
+        int mismatches = 0;
+        for (int test = 0; test < 300; test++) {
+            int size = 1 + random.nextInt(8);
+            GameImpl reference = new GameImpl(size);
+            game = new PersistentGame(size);
+            while (!reference.isOver()) {
+                List<Move> moves = new ArrayList<>(reference.getMoves());
+                Move move = moves.get(random.nextInt(moves.size()));
+                reference.makeMove(move);
+                game.makeMove(move);
+                if (reference.isOver() != game.isOver() || reference.winner() != game.winner()
+                        || reference.currentPlayer() != game.currentPlayer()
+                        || !reference.getGrid().toString().equals(game.getGrid().toString())
+                        || !new ArrayList<>(reference.getMoves()).equals(new ArrayList<>(game.getMoves())))
+                    mismatches++;
+            }
+        }
+        expect(0, mismatches);
+
+        checkAllTestsPassed();
+    }
+}
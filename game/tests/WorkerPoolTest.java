@@ -0,0 +1,68 @@
+package game.tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import game.*;
+
+public class WorkerPoolTest extends Test {
+    public static void main(String[] args) throws InterruptedException {
+        for (int threads = 1; threads <= 4; threads += 3) {
+            try (WorkerPool workers = new WorkerPool(threads)) {
+                expect(threads, workers.getThreads());
+
+                //the results come back in the order of the tasks
+                List<Callable<Integer>> tasks = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    int square = i * i;
+                    tasks.add(() -> square);
+                }
+                List<Integer> results = workers.invokeAll(tasks);
+                expect(20, results.size());
+                expect(0, results.get(0));
+                expect(361, results.get(19));
+
+                //unchecked exceptions of the tasks are rethrown as they are, and checked ones wrapped
+                tasks.add(() -> {
+                    throw new IllegalArgumentException("unchecked");
+                });
+                String message = null;
+                try {
+                    workers.invokeAll(tasks);
+                } catch (IllegalArgumentException e) {
+                    message = e.getMessage();
+                }
+                expect("unchecked", message);
+                tasks.set(20, () -> {
+                    throw new IOException("checked");
+                });
+                Throwable cause = null;
+                try {
+                    workers.invokeAll(tasks);
+                } catch (IllegalStateException e) {
+                    cause = e.getCause();
+                }
+                expect(true, cause instanceof IOException);
+            }
+        }
+
+        //the pool is kept while the number of threads stays the same
+        WorkerPool workers = new WorkerPool(2);
+        expect(true, workers.withThreads(2) == workers);
+        WorkerPool replacement = workers.withThreads(3);
+        expect(3, replacement.getThreads());
+        replacement.close();
+
+        boolean caught = false;
+        try {
+            new WorkerPool(0);
+        } catch (IllegalArgumentException e) {
+            caught = true;
+        }
+        expect(true, caught);
+
+        checkAllTestsPassed();
+    }
+}